@@ -16,6 +16,19 @@
 
 package com.google.cloud.flink.bigquery.common.utils;
 
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.BigIntType;
+import org.apache.flink.table.types.logical.BooleanType;
+import org.apache.flink.table.types.logical.DateType;
+import org.apache.flink.table.types.logical.DecimalType;
+import org.apache.flink.table.types.logical.DoubleType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.TimeType;
+import org.apache.flink.table.types.logical.TimestampType;
+import org.apache.flink.table.types.logical.VarBinaryType;
+import org.apache.flink.table.types.logical.VarCharType;
+
 import org.apache.flink.shaded.guava30.com.google.common.collect.ImmutableCollection;
 import org.apache.flink.shaded.guava30.com.google.common.collect.ImmutableMultimap;
 import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
@@ -23,13 +36,15 @@ import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
 import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableSchema;
 import com.google.cloud.bigquery.FieldList;
-import org.apache.avro.LogicalType;
 import org.apache.avro.LogicalTypes;
 import org.apache.avro.Schema;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -167,7 +182,7 @@ public class SchemaTransform {
                 // https://cloud.google.com/bigquery/docs/reference/standard-sql/data-types#decimal_types
                 int precision =
                         Optional.ofNullable(bigQueryField.getPrecision()).orElse(38L).intValue();
-                int scale = Optional.ofNullable(bigQueryField.getScale()).orElse(9L).intValue();
+                int scale = decimalScale(bigQueryField, 9);
                 return LogicalTypes.decimal(precision, scale)
                         .addToSchema(Schema.create(Schema.Type.BYTES));
             case "BIGNUMERIC":
@@ -175,21 +190,187 @@ public class SchemaTransform {
                 // https://cloud.google.com/bigquery/docs/reference/standard-sql/data-types#decimal_types
                 int precisionBigNumeric =
                         Optional.ofNullable(bigQueryField.getPrecision()).orElse(77L).intValue();
-                int scaleBigNumeric =
-                        Optional.ofNullable(bigQueryField.getScale()).orElse(38L).intValue();
+                int scaleBigNumeric = decimalScale(bigQueryField, 38);
                 return LogicalTypes.decimal(precisionBigNumeric, scaleBigNumeric)
                         .addToSchema(Schema.create(Schema.Type.BYTES));
             case "TIMESTAMP":
                 return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
             case "GEOGRAPHY":
                 Schema geoSchema = Schema.create(Schema.Type.STRING);
-                geoSchema.addProp(LogicalType.LOGICAL_TYPE_PROP, "geography_wkt");
+                geoSchema.addProp(org.apache.avro.LogicalType.LOGICAL_TYPE_PROP, "geography_wkt");
                 return geoSchema;
             default:
                 return Schema.create(avroType);
         }
     }
 
+    /**
+     * Transforms a list of BigQuery {@link TableFieldSchema} into a Flink {@link RowType}, which
+     * describes the internal data structures produced by the source readers.
+     *
+     * <p>BIGNUMERIC columns whose precision exceeds the maximum supported by Flink's DECIMAL type
+     * are represented as strings holding the plain decimal value, so no precision is lost.
+     *
+     * @param fieldSchemas The BigQuery fields, in the order the read session produces them.
+     * @return A Flink row type with the same structure.
+     */
+    public static RowType toFlinkRowType(List<TableFieldSchema> fieldSchemas) {
+        return new RowType(
+                fieldSchemas.stream()
+                        .map(
+                                field ->
+                                        new RowType.RowField(
+                                                field.getName(),
+                                                toFlinkFieldType(field),
+                                                field.getDescription()))
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Prunes a list of BigQuery {@link TableFieldSchema}, keeping only the selected fields. The
+     * kept fields preserve the order of the table schema, which is the order the read session
+     * produces them in, regardless of the order of the selection. Field names are matched case
+     * insensitively, as BigQuery does.
+     *
+     * <p>The fields nested in RECORD columns, repeated or not, can be selected using their dotted
+     * path (for example {@code payload.user.id}), in which case the RECORD column is kept with
+     * only the selected sub fields.
+     *
+     * @param fieldSchemas The BigQuery table fields.
+     * @param selectedFields The names or dotted paths of the fields to keep, all of them are kept
+     *     when empty.
+     * @return The pruned list of fields.
+     */
+    public static List<TableFieldSchema> pruneFields(
+            List<TableFieldSchema> fieldSchemas, List<String> selectedFields) {
+        if (selectedFields.isEmpty()) {
+            return fieldSchemas;
+        }
+        Set<String> wholeFields = new HashSet<>();
+        Map<String, List<String>> nestedFieldPaths = new HashMap<>();
+        for (String selectedField : selectedFields) {
+            String[] pathParts = selectedField.split("\\.", 2);
+            String fieldName = pathParts[0].toLowerCase(Locale.ROOT);
+            if (pathParts.length == 1) {
+                wholeFields.add(fieldName);
+            } else {
+                nestedFieldPaths
+                        .computeIfAbsent(fieldName, name -> new ArrayList<>())
+                        .add(pathParts[1]);
+            }
+        }
+        List<TableFieldSchema> prunedFields = new ArrayList<>();
+        for (TableFieldSchema field : fieldSchemas) {
+            String fieldName = field.getName().toLowerCase(Locale.ROOT);
+            List<String> nestedPaths = nestedFieldPaths.remove(fieldName);
+            if (wholeFields.remove(fieldName)) {
+                prunedFields.add(field);
+            } else if (nestedPaths != null) {
+                if (field.getFields() == null || field.getFields().isEmpty()) {
+                    throw new IllegalArgumentException(
+                            String.format(
+                                    "The field %s is not a RECORD, its nested fields %s can not be"
+                                            + " selected.",
+                                    field.getName(),
+                                    nestedPaths));
+                }
+                prunedFields.add(
+                        field.clone().setFields(pruneFields(field.getFields(), nestedPaths)));
+            }
+        }
+        if (!wholeFields.isEmpty() || !nestedFieldPaths.isEmpty()) {
+            Set<String> missingFields = new HashSet<>(wholeFields);
+            missingFields.addAll(nestedFieldPaths.keySet());
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The selected fields %s do not exist in the table schema.",
+                            missingFields));
+        }
+        return prunedFields;
+    }
+
+    /**
+     * The scale of a NUMERIC or BIGNUMERIC column. A parameterized column with a precision but no
+     * scale has a scale of 0, as in BigQuery, otherwise the scale defaults to the type's default.
+     */
+    private static int decimalScale(TableFieldSchema bigQueryField, int defaultScale) {
+        if (bigQueryField.getScale() != null) {
+            return bigQueryField.getScale().intValue();
+        }
+        return bigQueryField.getPrecision() != null ? 0 : defaultScale;
+    }
+
+    private static LogicalType toFlinkFieldType(TableFieldSchema bigQueryField) {
+        LogicalType elementType;
+        switch (bigQueryField.getType()) {
+            case "STRING":
+            case "GEOGRAPHY":
+            case "JSON":
+                elementType = new VarCharType(VarCharType.MAX_LENGTH);
+                break;
+            case "BYTES":
+                elementType = new VarBinaryType(VarBinaryType.MAX_LENGTH);
+                break;
+            case "INTEGER":
+            case "INT64":
+                elementType = new BigIntType();
+                break;
+            case "FLOAT":
+            case "FLOAT64":
+                elementType = new DoubleType();
+                break;
+            case "NUMERIC":
+                elementType =
+                        new DecimalType(
+                                Optional.ofNullable(bigQueryField.getPrecision())
+                                        .orElse(38L)
+                                        .intValue(),
+                                decimalScale(bigQueryField, 9));
+                break;
+            case "BIGNUMERIC":
+                int precision =
+                        Optional.ofNullable(bigQueryField.getPrecision()).orElse(77L).intValue();
+                elementType =
+                        precision > DecimalType.MAX_PRECISION
+                                ? new VarCharType(VarCharType.MAX_LENGTH)
+                                : new DecimalType(precision, decimalScale(bigQueryField, 38));
+                break;
+            case "BOOLEAN":
+            case "BOOL":
+                elementType = new BooleanType();
+                break;
+            case "TIMESTAMP":
+            case "DATETIME":
+                elementType = new TimestampType(6);
+                break;
+            case "DATE":
+                elementType = new DateType();
+                break;
+            case "TIME":
+                elementType = new TimeType(3);
+                break;
+            case "RECORD":
+            case "STRUCT":
+                elementType = toFlinkRowType(bigQueryField.getFields());
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unable to map BigQuery field type "
+                                + bigQueryField.getType()
+                                + " to a Flink type.");
+        }
+        if (bigQueryField.getMode() == null || bigQueryField.getMode().equals("NULLABLE")) {
+            return elementType;
+        } else if (bigQueryField.getMode().equals("REQUIRED")) {
+            return elementType.copy(false);
+        } else if (bigQueryField.getMode().equals("REPEATED")) {
+            return new ArrayType(false, elementType.copy(false));
+        } else {
+            throw new IllegalArgumentException(
+                    String.format("Unknown BigQuery Field Mode: %s", bigQueryField.getMode()));
+        }
+    }
+
     static List<TableFieldSchema> fieldListToListOfTableFieldSchema(FieldList fieldList) {
         return Optional.ofNullable(fieldList)
                 .map(
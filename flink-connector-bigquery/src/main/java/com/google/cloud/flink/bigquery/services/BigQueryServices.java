@@ -26,6 +26,8 @@ import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
 import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
 import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
 import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamRequest;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamResponse;
 import com.google.cloud.flink.bigquery.common.config.CredentialsOptions;
 
 import java.io.IOException;
@@ -70,6 +72,15 @@ public interface BigQueryServices extends Serializable {
          * called multiple times and from any thread.
          */
         void cancel();
+
+        /**
+         * Releases the resources backing a response received from the stream, once it has been
+         * consumed. Only needed for streams keeping the responses' payload in the transport
+         * buffers, for the rest this is a no-op.
+         *
+         * @param response A response received from the stream.
+         */
+        default void release(T response) {}
     }
 
     /** An interface representing a client object for making calls to the BigQuery Storage API. */
@@ -90,6 +101,30 @@ public interface BigQueryServices extends Serializable {
          */
         BigQueryServerStream<ReadRowsResponse> readRows(ReadRowsRequest request);
 
+        /**
+         * Read rows in the context of a specific read stream, parsing the responses straight from
+         * the transport buffers when possible, so their payload is not copied into heap memory.
+         * Each response received must be released through {@link
+         * BigQueryServerStream#release(Object)} once its rows are not referenced anymore. By
+         * default, this reads the rows as {@link #readRows(ReadRowsRequest)} does.
+         *
+         * @param request The request for the storage API
+         * @return a server stream response with the read rows.
+         */
+        default BigQueryServerStream<ReadRowsResponse> readRowsZeroCopy(ReadRowsRequest request) {
+            return readRows(request);
+        }
+
+        /**
+         * Splits a read stream at the given fraction, into a primary stream containing the rows
+         * before the split point and a remainder stream containing the rest of them. The original
+         * stream can still be read to completion, returning the rows of both.
+         *
+         * @param request The split stream request.
+         * @return The primary and remainder streams, both empty when the stream can not be split.
+         */
+        SplitReadStreamResponse splitReadStream(SplitReadStreamRequest request);
+
         /**
          * Close the client object.
          *
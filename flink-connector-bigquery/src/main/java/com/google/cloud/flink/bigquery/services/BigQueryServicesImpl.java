@@ -22,10 +22,16 @@ import org.apache.flink.api.java.tuple.Tuple2;
 
 import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
 
+import com.google.api.gax.core.BackgroundResourceAggregation;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.grpc.GrpcCallSettings;
+import com.google.api.gax.grpc.GrpcCallableFactory;
+import com.google.api.gax.rpc.ClientContext;
 import com.google.api.gax.rpc.FixedHeaderProvider;
 import com.google.api.gax.rpc.HeaderProvider;
+import com.google.api.gax.rpc.ServerStreamingCallSettings;
 import com.google.api.gax.rpc.ServerStream;
+import com.google.api.gax.rpc.ServerStreamingCallable;
 import com.google.api.gax.rpc.UnaryCallSettings;
 import com.google.api.services.bigquery.Bigquery;
 import com.google.api.services.bigquery.model.Dataset;
@@ -41,6 +47,7 @@ import com.google.cloud.bigquery.StandardSQLTypeName;
 import com.google.cloud.bigquery.TableId;
 import com.google.cloud.bigquery.TableResult;
 import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadGrpc;
 import com.google.cloud.bigquery.storage.v1.BigQueryReadSettings;
 import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
 import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
@@ -48,11 +55,13 @@ import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
 import com.google.cloud.bigquery.storage.v1.ReadSession;
 import com.google.cloud.bigquery.storage.v1.SplitReadStreamRequest;
 import com.google.cloud.bigquery.storage.v1.SplitReadStreamResponse;
+import com.google.cloud.bigquery.storage.v1.stub.EnhancedBigQueryReadStubSettings;
 import com.google.cloud.flink.bigquery.common.config.CredentialsOptions;
 import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
 import org.threeten.bp.Duration;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -78,7 +87,12 @@ public class BigQueryServicesImpl implements BigQueryServices {
      * A simple implementation that wraps a BigQuery ServerStream.
      *
      * @param <T> The type of the underlying streamed data.
+     * @deprecated The ReadRows streams are received through a {@link FlowControlledServerStream},
+     *     which requests the responses only as they are consumed, and releases the responses
+     *     received once cancelled. This wrapper is kept as it was before, for the callers holding
+     *     a gax ServerStream, and will be removed in a future release.
      */
+    @Deprecated
     public static class BigQueryServerStreamImpl<T> implements BigQueryServerStream<T> {
 
         private final ServerStream<T> serverStream;
@@ -105,6 +119,10 @@ public class BigQueryServicesImpl implements BigQueryServices {
                         "user-agent", "Apache_Flink_Java/" + FlinkVersion.current().toString());
 
         private final BigQueryReadClient client;
+        private final EnhancedBigQueryReadStubSettings stubSettings;
+        private ClientContext zeroCopyContext;
+        private ZeroCopyReadRowsMarshaller zeroCopyMarshaller;
+        private ServerStreamingCallable<ReadRowsRequest, ReadRowsResponse> zeroCopyReadRows;
 
         private StorageReadClientImpl(CredentialsOptions options) throws IOException {
             BigQueryReadSettings.Builder settingsBuilder =
@@ -142,6 +160,14 @@ public class BigQueryServicesImpl implements BigQueryServices {
                             .setTotalTimeout(Duration.ofSeconds(30))
                             .build());
 
+            // the failed ReadRows streams are reopened by the split readers, at the offset of
+            // their next row and bounded by the configured retries, so the client library should
+            // not resume them underneath as well
+            ServerStreamingCallSettings.Builder<ReadRowsRequest, ReadRowsResponse>
+                    readRowsSettings = settingsBuilder.getStubSettingsBuilder().readRowsSettings();
+            readRowsSettings.setRetryableCodes(Collections.emptySet());
+
+            this.stubSettings = settingsBuilder.getStubSettingsBuilder().build();
             this.client = BigQueryReadClient.create(settingsBuilder.build());
         }
 
@@ -152,12 +178,69 @@ public class BigQueryServicesImpl implements BigQueryServices {
 
         @Override
         public BigQueryServerStream<ReadRowsResponse> readRows(ReadRowsRequest request) {
-            return new BigQueryServerStreamImpl<>(client.readRowsCallable().call(request));
+            return FlowControlledServerStream.call(
+                    client.readRowsCallable(), request, response -> {});
+        }
+
+        @Override
+        public BigQueryServerStream<ReadRowsResponse> readRowsZeroCopy(ReadRowsRequest request) {
+            if (zeroCopyReadRows == null) {
+                createZeroCopyReadRows();
+            }
+            return FlowControlledServerStream.call(
+                    zeroCopyReadRows, request, zeroCopyMarshaller::release);
+        }
+
+        /**
+         * The generated client does not allow to change the marshaller of the responses, so the
+         * ReadRows calls parsing the responses from the transport buffers are made through their
+         * own callable, with the same settings of the client's ReadRows calls.
+         */
+        private void createZeroCopyReadRows() {
+            try {
+                zeroCopyMarshaller = new ZeroCopyReadRowsMarshaller();
+                zeroCopyContext = ClientContext.create(stubSettings);
+                zeroCopyReadRows =
+                        GrpcCallableFactory.createServerStreamingCallable(
+                                GrpcCallSettings.<ReadRowsRequest, ReadRowsResponse>newBuilder()
+                                        .setMethodDescriptor(
+                                                BigQueryReadGrpc.getReadRowsMethod().toBuilder()
+                                                        .setResponseMarshaller(zeroCopyMarshaller)
+                                                        .build())
+                                        .setParamsExtractor(
+                                                request ->
+                                                        Collections.singletonMap(
+                                                                "read_stream",
+                                                                request.getReadStream()))
+                                        .build(),
+                                stubSettings.readRowsSettings(),
+                                zeroCopyContext);
+            } catch (IOException ex) {
+                throw new RuntimeException(
+                        "Problems creating the zero copy BigQuery Storage ReadRows callable.", ex);
+            }
+        }
+
+        @Override
+        public SplitReadStreamResponse splitReadStream(SplitReadStreamRequest request) {
+            return client.splitReadStream(request);
         }
 
         @Override
         public void close() {
             client.close();
+            if (zeroCopyContext != null) {
+                try {
+                    new BackgroundResourceAggregation(zeroCopyContext.getBackgroundResources())
+                            .close();
+                } catch (Exception ex) {
+                    throw new RuntimeException(
+                            "Problems closing the zero copy BigQuery Storage ReadRows client.",
+                            ex);
+                } finally {
+                    zeroCopyMarshaller.releaseAll();
+                }
+            }
         }
     }
 
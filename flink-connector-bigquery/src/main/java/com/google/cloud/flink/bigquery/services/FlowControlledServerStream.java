@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import org.apache.flink.annotation.Internal;
+
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A server stream receiving its responses with manual flow control: the transport is asked for a
+ * new response only once the previous one has been taken from the iterator, so a consumer that
+ * stops reading, like a backpressured reader or a full read ahead queue, stops the transfer of
+ * responses from the server, and at most one response is ever buffered by the stream.
+ *
+ * <p>Cancelling the stream releases the response buffered, if any, since it will not be consumed.
+ * This is what sets it apart from a gax ServerStream, which drops the responses it buffered
+ * without handing them back, so the transport buffers of the zero copy receive would be held until
+ * their marshaller gets closed.
+ *
+ * @param <T> The type of the streamed responses.
+ */
+@Internal
+public class FlowControlledServerStream<T> implements BigQueryServices.BigQueryServerStream<T> {
+
+    private final Consumer<T> releaser;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<T> received = new ArrayDeque<>();
+
+    private StreamController controller;
+    private boolean started;
+    private boolean completed;
+    private boolean cancelled;
+    private Throwable error;
+
+    private FlowControlledServerStream(Consumer<T> releaser) {
+        this.releaser = releaser;
+    }
+
+    /**
+     * Starts a server streaming call, requesting its first response right away.
+     *
+     * @param callable The callable of the server streaming method.
+     * @param request The request of the call.
+     * @param releaser Releases the resources backing a response, once consumed.
+     * @param <RequestT> The type of the request.
+     * @param <T> The type of the streamed responses.
+     * @return The stream of the call's responses.
+     */
+    public static <RequestT, T> FlowControlledServerStream<T> call(
+            ServerStreamingCallable<RequestT, T> callable,
+            RequestT request,
+            Consumer<T> releaser) {
+        FlowControlledServerStream<T> stream = new FlowControlledServerStream<>(releaser);
+        callable.call(request, stream.new Observer());
+        return stream;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        lock.lock();
+        try {
+            if (started) {
+                throw new IllegalStateException("The stream can only be iterated once.");
+            }
+            started = true;
+        } finally {
+            lock.unlock();
+        }
+        return new ReceivedIterator();
+    }
+
+    @Override
+    public void cancel() {
+        StreamController toCancel;
+        lock.lock();
+        try {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            received.forEach(releaser);
+            received.clear();
+            changed.signalAll();
+            toCancel = controller;
+        } finally {
+            lock.unlock();
+        }
+        // a call not started yet gets cancelled once it starts
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+    }
+
+    @Override
+    public void release(T response) {
+        releaser.accept(response);
+    }
+
+    /** Receives the responses of the call, as requested by the iterator. */
+    class Observer implements ResponseObserver<T> {
+
+        @Override
+        public void onStart(StreamController controller) {
+            controller.disableAutoInboundFlowControl();
+            boolean cancelledBefore;
+            lock.lock();
+            try {
+                FlowControlledServerStream.this.controller = controller;
+                cancelledBefore = cancelled;
+            } finally {
+                lock.unlock();
+            }
+            if (cancelledBefore) {
+                controller.cancel();
+            } else {
+                controller.request(1);
+            }
+        }
+
+        @Override
+        public void onResponse(T response) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    releaser.accept(response);
+                    return;
+                }
+                received.add(response);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            lock.lock();
+            try {
+                completed = true;
+                error = t;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            lock.lock();
+            try {
+                completed = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Serves the received responses, blocking until the requested one arrives. */
+    class ReceivedIterator implements Iterator<T> {
+
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                while (received.isEmpty() && !completed && !cancelled) {
+                    changed.await();
+                }
+                if (!received.isEmpty()) {
+                    return true;
+                }
+                if (error != null && !cancelled) {
+                    if (error instanceof RuntimeException) {
+                        throw (RuntimeException) error;
+                    }
+                    throw new RuntimeException("Problems while reading the stream.", error);
+                }
+                return false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(
+                        "Interrupted while waiting for the stream's responses.", ex);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T response;
+            StreamController toRequest;
+            lock.lock();
+            try {
+                response = received.poll();
+                if (response == null) {
+                    // the stream got cancelled after checking for more responses
+                    throw new NoSuchElementException();
+                }
+                toRequest = controller;
+            } finally {
+                lock.unlock();
+            }
+            // the next response is only requested once this one is taken
+            toRequest.request(1);
+            return response;
+        }
+    }
+}
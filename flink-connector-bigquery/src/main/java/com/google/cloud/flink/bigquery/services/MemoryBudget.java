@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * Accounts the memory held by a source reader, in bytes, against a fixed capacity. The memory is
+ * reserved by whoever receives data, like the responses of a stream, and released once that data
+ * is no longer referenced, so the receivers can hold off reading more data while the budget is
+ * used up. The budget does not notify its releases, so the receivers waiting for memory check it
+ * back periodically.
+ *
+ * <p>Reservations may also be forced over the capacity, which the receivers use to guarantee
+ * every stream can make progress; the budget is then only exceeded by those reservations. The
+ * budget is a soft bound, and an approximate one: the receivers account for the size of the data
+ * as received, like the serialized size of a response, not for the memory of what gets decoded
+ * out of it.
+ */
+@Internal
+public class MemoryBudget {
+
+    private final long capacity;
+    private long reserved;
+
+    public MemoryBudget(long capacity) {
+        Preconditions.checkArgument(capacity > 0, "The memory budget should be positive.");
+        this.capacity = capacity;
+        this.reserved = 0;
+    }
+
+    /**
+     * Reserves the requested memory, only if it fits in the budget.
+     *
+     * @param bytes The memory to reserve.
+     * @return Whether the memory was reserved.
+     */
+    public synchronized boolean tryReserve(long bytes) {
+        if (reserved + bytes > capacity) {
+            return false;
+        }
+        reserved += bytes;
+        return true;
+    }
+
+    /**
+     * Reserves the requested memory, even if it does not fit in the budget.
+     *
+     * @param bytes The memory to reserve.
+     */
+    public synchronized void forceReserve(long bytes) {
+        reserved += bytes;
+    }
+
+    /**
+     * Releases memory previously reserved.
+     *
+     * @param bytes The memory to release.
+     */
+    public synchronized void release(long bytes) {
+        reserved -= bytes;
+    }
+
+    /**
+     * Checks whether the budget has some memory available, without waiting for it.
+     *
+     * @return Whether less memory than the capacity is reserved.
+     */
+    public synchronized boolean hasAvailable() {
+        return reserved < capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getReserved() {
+        return reserved;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link BigQueryServices.BigQueryServerStream} which reads ahead the responses of another
+ * stream into a bounded queue, using a background task. This way the network receive of the
+ * stream's responses overlaps with the decoding and emission of the already received ones.
+ *
+ * <p>The queue is bounded both by the number of responses and by their accumulated size in bytes;
+ * a single response bigger than the byte limit is still accepted when the queue is empty, so the
+ * stream always makes progress. Errors found while reading the underlying stream are rethrown by
+ * the iterator once the responses received before them have been consumed.
+ *
+ * <p>When given a {@link MemoryBudget}, shared by all the streams of a reader, each response read
+ * ahead also reserves its size from the budget, and the reading stops while the budget is used up.
+ * The first response of an empty queue is reserved regardless of the budget, so no stream is ever
+ * starved by the responses read ahead for other streams. The reservation of a response is handed
+ * to the consumer of the iterator, which should release it once done with the response.
+ *
+ * <p>Since the iterator blocks until the next response is received, which may take long on slow or
+ * throttled streams, its consumer can wait for the responses with {@link #awaitNext()} instead,
+ * which returns early once another thread calls {@link #wakeUp()}.
+ *
+ * @param <T> The type of the streamed responses.
+ */
+@Internal
+public class PrefetchingServerStream<T> implements BigQueryServices.BigQueryServerStream<T> {
+    // the budget is released by other threads, so the reading checks it back periodically
+    private static final long BUDGET_RETRY_MILLIS = 10L;
+
+    private final BigQueryServices.BigQueryServerStream<T> delegate;
+    private final Executor executor;
+    private final ToLongFunction<T> sizeOf;
+    private final int maxQueuedResponses;
+    private final long maxQueuedBytes;
+    @Nullable private final MemoryBudget memoryBudget;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<T> queue = new ArrayDeque<>();
+
+    private long queuedBytes;
+    private boolean started;
+    private boolean finished;
+    private boolean cancelled;
+    private boolean wokenUp;
+    private Throwable error;
+
+    /**
+     * Creates the read ahead stream, the underlying stream will be consumed only once the iterator
+     * of this instance is requested.
+     *
+     * @param delegate The stream to read ahead.
+     * @param executor The executor that will run the read ahead task.
+     * @param sizeOf A function returning the size in bytes of a response.
+     * @param maxQueuedResponses The max number of responses that can be read ahead.
+     * @param maxQueuedBytes The max accumulated size of the responses read ahead.
+     */
+    public PrefetchingServerStream(
+            BigQueryServices.BigQueryServerStream<T> delegate,
+            Executor executor,
+            ToLongFunction<T> sizeOf,
+            int maxQueuedResponses,
+            long maxQueuedBytes) {
+        this(delegate, executor, sizeOf, maxQueuedResponses, maxQueuedBytes, null);
+    }
+
+    /**
+     * Creates the read ahead stream, reserving the responses read ahead from a memory budget.
+     *
+     * @param delegate The stream to read ahead.
+     * @param executor The executor that will run the read ahead task.
+     * @param sizeOf A function returning the size in bytes of a response.
+     * @param maxQueuedResponses The max number of responses that can be read ahead.
+     * @param maxQueuedBytes The max accumulated size of the responses read ahead.
+     * @param memoryBudget The budget to reserve the responses from, if any.
+     */
+    public PrefetchingServerStream(
+            BigQueryServices.BigQueryServerStream<T> delegate,
+            Executor executor,
+            ToLongFunction<T> sizeOf,
+            int maxQueuedResponses,
+            long maxQueuedBytes,
+            @Nullable MemoryBudget memoryBudget) {
+        Preconditions.checkArgument(
+                maxQueuedResponses > 0, "The max number of queued responses should be positive.");
+        Preconditions.checkArgument(
+                maxQueuedBytes > 0, "The max size of the queued responses should be positive.");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.sizeOf = sizeOf;
+        this.maxQueuedResponses = maxQueuedResponses;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        lock.lock();
+        try {
+            Preconditions.checkState(!started, "The stream can only be iterated once.");
+            started = true;
+        } finally {
+            lock.unlock();
+        }
+        executor.execute(this::readAhead);
+        return new PrefetchedIterator();
+    }
+
+    @Override
+    public void cancel() {
+        lock.lock();
+        try {
+            cancelled = true;
+            queue.forEach(delegate::release);
+            queue.clear();
+            if (memoryBudget != null) {
+                memoryBudget.release(queuedBytes);
+            }
+            queuedBytes = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        delegate.cancel();
+    }
+
+    @Override
+    public void release(T response) {
+        delegate.release(response);
+    }
+
+    /**
+     * Waits until the iterator can be read without blocking, because a response was read ahead or
+     * the stream is over, or until another thread calls {@link #wakeUp()}. A wake up requested
+     * while no thread is waiting makes the next call return right away.
+     *
+     * @return Whether the iterator can be read without blocking, false if woken up before.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitNext() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && !finished && !cancelled && !wokenUp) {
+                notEmpty.await();
+            }
+            wokenUp = false;
+            return !queue.isEmpty() || finished || cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Wakes up the thread waiting in {@link #awaitNext()}. */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            wokenUp = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void readAhead() {
+        try {
+            for (T response : delegate) {
+                if (!enqueue(response)) {
+                    return;
+                }
+            }
+            complete(null);
+        } catch (Throwable t) {
+            complete(t);
+        }
+    }
+
+    private boolean enqueue(T response) throws InterruptedException {
+        long size = sizeOf.applyAsLong(response);
+        boolean reserved = false;
+        lock.lock();
+        try {
+            while (!cancelled && !queue.isEmpty()) {
+                if (queue.size() < maxQueuedResponses
+                        && queuedBytes + size <= maxQueuedBytes
+                        && (memoryBudget == null || memoryBudget.tryReserve(size))) {
+                    reserved = true;
+                    break;
+                }
+                if (memoryBudget == null) {
+                    notFull.await();
+                } else {
+                    notFull.await(BUDGET_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (cancelled) {
+                if (reserved && memoryBudget != null) {
+                    memoryBudget.release(size);
+                }
+                delegate.release(response);
+                return false;
+            }
+            if (!reserved && memoryBudget != null) {
+                // the response is the only one queued, so the stream can make progress
+                memoryBudget.forceReserve(size);
+            }
+            queue.add(response);
+            queuedBytes += size;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(Throwable t) {
+        lock.lock();
+        try {
+            finished = true;
+            error = cancelled ? null : t;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Serves the responses read ahead, blocking while the queue is empty. */
+    class PrefetchedIterator implements Iterator<T> {
+
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !finished && !cancelled) {
+                    notEmpty.await();
+                }
+                if (!queue.isEmpty()) {
+                    return true;
+                }
+                if (error != null) {
+                    throw new RuntimeException(
+                            "Problems while reading ahead the stream's responses.", error);
+                }
+                return false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(
+                        "Interrupted while waiting for the stream's responses.", ex);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lock.lock();
+            try {
+                T response = queue.poll();
+                if (response == null) {
+                    // the stream got cancelled after checking for more responses
+                    throw new NoSuchElementException();
+                }
+                queuedBytes -= sizeOf.applyAsLong(response);
+                notFull.signal();
+                return response;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import org.apache.flink.annotation.Internal;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A gRPC response marshaller for ReadRows, which parses the responses straight from the buffers
+ * received by the transport instead of copying them into heap memory first. The parsed response
+ * aliases those buffers, so the serialized rows it carries are not copied either.
+ *
+ * <p>The transport buffers backing a response are retained until {@link
+ * #release(ReadRowsResponse)} is called for it, which should happen once its rows have been
+ * decoded and are not referenced anymore. When the transport does not expose its buffers the
+ * responses are parsed the usual way, and there is nothing to release.
+ */
+@Internal
+public class ZeroCopyReadRowsMarshaller
+        implements MethodDescriptor.PrototypeMarshaller<ReadRowsResponse> {
+    private static final Logger LOG = LoggerFactory.getLogger(ZeroCopyReadRowsMarshaller.class);
+
+    private static final MethodDescriptor.Marshaller<ReadRowsResponse> DEFAULT_MARSHALLER =
+            ProtoUtils.marshaller(ReadRowsResponse.getDefaultInstance());
+
+    private final Map<ReadRowsResponse, InputStream> retainedBuffers =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @Override
+    public ReadRowsResponse getMessagePrototype() {
+        return ReadRowsResponse.getDefaultInstance();
+    }
+
+    @Override
+    public Class<ReadRowsResponse> getMessageClass() {
+        return ReadRowsResponse.class;
+    }
+
+    @Override
+    public InputStream stream(ReadRowsResponse value) {
+        return DEFAULT_MARSHALLER.stream(value);
+    }
+
+    @Override
+    public ReadRowsResponse parse(InputStream stream) {
+        if (!(stream instanceof Detachable)
+                || !(stream instanceof HasByteBuffer)
+                || !((HasByteBuffer) stream).byteBufferSupported()
+                || !stream.markSupported()) {
+            return DEFAULT_MARSHALLER.parse(stream);
+        }
+        // takes the ownership of the transport buffers, which otherwise get released once parsed
+        InputStream detached = ((Detachable) stream).detach();
+        boolean retained = false;
+        try {
+            // marking keeps the buffers already skipped readable until the stream is closed
+            detached.mark(Integer.MAX_VALUE);
+            List<ByteString> buffers = new ArrayList<>();
+            while (detached.available() > 0) {
+                ByteBuffer buffer = ((HasByteBuffer) detached).getByteBuffer();
+                if (buffer == null) {
+                    detached.reset();
+                    return DEFAULT_MARSHALLER.parse(detached);
+                }
+                int size = buffer.remaining();
+                buffers.add(UnsafeByteOperations.unsafeWrap(buffer));
+                detached.skip(size);
+            }
+            // concatenating the buffers does not copy them
+            CodedInputStream input = ByteString.copyFrom(buffers).newCodedInput();
+            input.enableAliasing(true);
+            ReadRowsResponse response = ReadRowsResponse.parseFrom(input);
+            retainedBuffers.put(response, detached);
+            retained = true;
+            return response;
+        } catch (IOException ex) {
+            throw Status.INTERNAL
+                    .withDescription("Invalid ReadRows response.")
+                    .withCause(ex)
+                    .asRuntimeException();
+        } finally {
+            if (!retained) {
+                closeQuietly(detached);
+            }
+        }
+    }
+
+    /**
+     * Releases the transport buffers backing a response parsed by this marshaller. The response,
+     * and any data obtained from it, must not be accessed afterwards.
+     *
+     * @param response The response to release.
+     */
+    public void release(ReadRowsResponse response) {
+        InputStream buffers = retainedBuffers.remove(response);
+        if (buffers != null) {
+            closeQuietly(buffers);
+        }
+    }
+
+    /** Releases the transport buffers of all the responses not released yet. */
+    public void releaseAll() {
+        List<InputStream> buffers;
+        synchronized (retainedBuffers) {
+            buffers = new ArrayList<>(retainedBuffers.values());
+            retainedBuffers.clear();
+        }
+        buffers.forEach(ZeroCopyReadRowsMarshaller::closeQuietly);
+    }
+
+    int retainedResponses() {
+        return retainedBuffers.size();
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ex) {
+            LOG.warn("Problems while releasing the buffers of a ReadRows response.", ex);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.connector.source.Boundedness;
+import org.apache.flink.api.connector.source.Source;
+import org.apache.flink.api.connector.source.SourceReader;
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable;
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.types.logical.RowType;
+
+import com.google.api.services.bigquery.model.TableSchema;
+import com.google.auto.value.AutoValue;
+import com.google.cloud.flink.bigquery.common.config.BigQueryConnectOptions;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import com.google.cloud.flink.bigquery.services.BigQueryServicesFactory;
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.enumerator.BigQuerySourceEnumState;
+import com.google.cloud.flink.bigquery.source.enumerator.BigQuerySourceEnumStateSerializer;
+import com.google.cloud.flink.bigquery.source.enumerator.BigQuerySourceEnumerator;
+import com.google.cloud.flink.bigquery.source.reader.BigQueryRecordEmitter;
+import com.google.cloud.flink.bigquery.source.reader.BigQuerySourceReader;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitAssigner;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitSerializer;
+
+/**
+ * The DataStream {@link Source} implementation for Google BigQuery. It reads the content of a
+ * BigQuery table using the Storage Read API, and produces Flink's internal {@link RowData}
+ * records with the structure of the table's schema.
+ *
+ * <p>The following example demonstrates how to configure the source:
+ *
+ * <pre>{@code
+ * BigQuerySource source =
+ *       BigQuerySource.readRows(
+ *           BigQueryReadOptions.builder()
+ *               .setBigQueryConnectOptions(
+ *                   BigQueryConnectOptions.builder()
+ *                       .setProjectId("some-gcp-project")
+ *                       .setDataset("some-bq-dataset")
+ *                       .setTable("some-bq-table")
+ *                       .build())
+ *               .build());
+ * }</pre>
+ */
+@AutoValue
+@PublicEvolving
+public abstract class BigQuerySource
+        implements Source<RowData, BigQuerySourceSplit, BigQuerySourceEnumState>,
+                ResultTypeQueryable<RowData> {
+
+    public abstract BigQueryReadOptions getReadOptions();
+
+    public abstract RowType getRowType();
+
+    @Override
+    public Boundedness getBoundedness() {
+        return Boundedness.BOUNDED;
+    }
+
+    @Override
+    public SimpleVersionedSerializer<BigQuerySourceSplit> getSplitSerializer() {
+        return BigQuerySourceSplitSerializer.INSTANCE;
+    }
+
+    @Override
+    public SimpleVersionedSerializer<BigQuerySourceEnumState> getEnumeratorCheckpointSerializer() {
+        return BigQuerySourceEnumStateSerializer.INSTANCE;
+    }
+
+    @Override
+    public TypeInformation<RowData> getProducedType() {
+        return InternalTypeInfo.of(getRowType());
+    }
+
+    @Override
+    public SourceReader<RowData, BigQuerySourceSplit> createReader(
+            SourceReaderContext readerContext) throws Exception {
+        return new BigQuerySourceReader(getReadOptions(), getRowType(), readerContext);
+    }
+
+    @Override
+    public SplitEnumerator<BigQuerySourceSplit, BigQuerySourceEnumState> createEnumerator(
+            SplitEnumeratorContext<BigQuerySourceSplit> enumContext) throws Exception {
+        return restoreEnumerator(enumContext, BigQuerySourceEnumState.initialState());
+    }
+
+    @Override
+    public SplitEnumerator<BigQuerySourceSplit, BigQuerySourceEnumState> restoreEnumerator(
+            SplitEnumeratorContext<BigQuerySourceSplit> enumContext,
+            BigQuerySourceEnumState checkpoint)
+            throws Exception {
+        BigQuerySourceSplitAssigner assigner =
+                new BigQuerySourceSplitAssigner(getReadOptions(), checkpoint);
+        return new BigQuerySourceEnumerator(
+                getBoundedness(), enumContext, assigner, getReadOptions().getLimit());
+    }
+
+    /**
+     * Transforms the instance into a builder instance for property modification.
+     *
+     * @return A {@link Builder} instance for the type.
+     */
+    public abstract Builder toBuilder();
+
+    /**
+     * Creates an instance of this class builder.
+     *
+     * @return The BigQuerySource builder instance.
+     */
+    public static Builder builder() {
+        return new AutoValue_BigQuerySource.Builder();
+    }
+
+    /**
+     * Creates an instance of the source, reading the table configured in the provided options.
+     * The table's schema is retrieved from BigQuery to validate the row restriction and the event
+     * time column, if any, and pruned to the selected columns, if any, to define the type of the
+     * produced records.
+     *
+     * @param readOptions The read options for this source
+     * @return A fully initialized instance of the source, ready to read {@link RowData} from a
+     *     BigQuery table.
+     */
+    public static BigQuerySource readRows(BigQueryReadOptions readOptions) {
+        BigQueryConnectOptions connectOptions = readOptions.getBigQueryConnectOptions();
+        TableSchema tableSchema =
+                BigQueryServicesFactory.instance(connectOptions)
+                        .queryClient()
+                        .getTableSchema(
+                                connectOptions.getProjectId(),
+                                connectOptions.getDataset(),
+                                connectOptions.getTable());
+        if (readOptions.getRowRestriction() != null) {
+            readOptions.getRowRestriction().validate(tableSchema);
+        }
+        RowType rowType =
+                SchemaTransform.toFlinkRowType(
+                        SchemaTransform.pruneFields(
+                                tableSchema.getFields(), readOptions.getColumnNames()));
+        if (readOptions.getEventTimeColumn() != null) {
+            BigQueryRecordEmitter.eventTimeFieldIndex(rowType, readOptions.getEventTimeColumn());
+        }
+        return BigQuerySource.builder().setReadOptions(readOptions).setRowType(rowType).build();
+    }
+
+    /** Builder class for {@link BigQuerySource}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+        /**
+         * Sets the read options for the source.
+         *
+         * @param readOptions The BigQuery read options.
+         * @return this builder
+         */
+        public abstract Builder setReadOptions(BigQueryReadOptions readOptions);
+
+        /**
+         * Sets the type of the records produced by the source, which should match the schema of
+         * the rows delivered by the read session.
+         *
+         * @param rowType The Flink row type.
+         * @return this builder
+         */
+        public abstract Builder setRowType(RowType rowType);
+
+        /**
+         * Creates an instance of the {@link BigQuerySource}.
+         *
+         * @return A fully initialized instance of the source.
+         */
+        public abstract BigQuerySource build();
+    }
+}
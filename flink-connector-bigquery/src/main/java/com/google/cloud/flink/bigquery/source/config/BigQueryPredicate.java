@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.config;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Preconditions;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.ImmutableMultimap;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.api.services.bigquery.model.TableSchema;
+
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * A filter predicate over the columns of a BigQuery table, which is pushed down to the read
+ * session as its row restriction, so the rows not matching it are never read nor transferred.
+ *
+ * <p>Predicates are created with the static factory methods of this class and can be combined
+ * using {@link #and(BigQueryPredicate...)} and {@link #or(BigQueryPredicate...)}, for example:
+ *
+ * <pre>{@code
+ * BigQueryPredicate predicate =
+ *     BigQueryPredicate.and(
+ *         BigQueryPredicate.greaterThanOrEqual("ts", Instant.parse("2023-01-01T00:00:00Z")),
+ *         BigQueryPredicate.in("country", "AR", "BR"),
+ *         BigQueryPredicate.isNotNull("payload.user.id"));
+ * }</pre>
+ *
+ * <p>The literal values are expected to be of the Java type matching the column's BigQuery type:
+ * {@link String} for STRING, {@link Long} or {@link Integer} for INTEGER, {@link Double} (or an
+ * integral value) for FLOAT, {@link BigDecimal} (or an integral value) for NUMERIC and BIGNUMERIC,
+ * {@link Boolean} for BOOLEAN, {@link LocalDate} for DATE, {@link LocalTime} for TIME, {@link
+ * LocalDateTime} for DATETIME and {@link Instant} for TIMESTAMP. Both the referenced columns and
+ * the literal types are checked against the table schema by {@link #validate(TableSchema)}, which
+ * also resolves whether the decimal literals are NUMERIC or BIGNUMERIC ones, from the type of the
+ * column they are compared with. NaN and infinite floating point literals are not supported.
+ */
+@PublicEvolving
+public abstract class BigQueryPredicate implements Serializable {
+
+    private static final ImmutableMultimap<String, Class<?>> BIG_QUERY_TO_LITERAL_TYPES =
+            ImmutableMultimap.<String, Class<?>>builder()
+                    .putAll("STRING", String.class)
+                    .putAll("INTEGER", Long.class, Integer.class)
+                    .putAll("INT64", Long.class, Integer.class)
+                    .putAll("FLOAT", Double.class, Float.class, Long.class, Integer.class)
+                    .putAll("FLOAT64", Double.class, Float.class, Long.class, Integer.class)
+                    .putAll("NUMERIC", BigDecimal.class, Long.class, Integer.class)
+                    .putAll("BIGNUMERIC", BigDecimal.class, Long.class, Integer.class)
+                    .putAll("BOOLEAN", Boolean.class)
+                    .putAll("BOOL", Boolean.class)
+                    .putAll("DATE", LocalDate.class)
+                    .putAll("TIME", LocalTime.class)
+                    .putAll("DATETIME", LocalDateTime.class)
+                    .putAll("TIMESTAMP", Instant.class)
+                    .build();
+
+    private static final DateTimeFormatter DATETIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS");
+
+    BigQueryPredicate() {}
+
+    /**
+     * Translates the predicate into a BigQuery Standard SQL boolean expression, as expected by the
+     * read session's row restriction.
+     *
+     * @return The row restriction expression.
+     */
+    public abstract String toRowRestriction();
+
+    /**
+     * Checks the referenced columns exist in the table schema, are not REPEATED and their type
+     * matches the one of the literals they are compared with.
+     *
+     * @param tableSchema The schema of the BigQuery table.
+     * @throws IllegalArgumentException In case the predicate does not match the schema.
+     */
+    public void validate(TableSchema tableSchema) {
+        validate(tableSchema.getFields());
+    }
+
+    abstract void validate(List<TableFieldSchema> fields);
+
+    @Override
+    public String toString() {
+        return toRowRestriction();
+    }
+
+    public static BigQueryPredicate equalTo(String column, Serializable value) {
+        return new Comparison(column, "=", value);
+    }
+
+    public static BigQueryPredicate notEqualTo(String column, Serializable value) {
+        return new Comparison(column, "!=", value);
+    }
+
+    public static BigQueryPredicate lessThan(String column, Serializable value) {
+        return new Comparison(column, "<", value);
+    }
+
+    public static BigQueryPredicate lessThanOrEqual(String column, Serializable value) {
+        return new Comparison(column, "<=", value);
+    }
+
+    public static BigQueryPredicate greaterThan(String column, Serializable value) {
+        return new Comparison(column, ">", value);
+    }
+
+    public static BigQueryPredicate greaterThanOrEqual(String column, Serializable value) {
+        return new Comparison(column, ">=", value);
+    }
+
+    public static BigQueryPredicate in(String column, Serializable... values) {
+        Preconditions.checkArgument(
+                values.length > 0, "The IN predicate needs at least one value.");
+        return new In(column, Arrays.asList(values));
+    }
+
+    public static BigQueryPredicate isNull(String column) {
+        return new IsNull(column, false);
+    }
+
+    public static BigQueryPredicate isNotNull(String column) {
+        return new IsNull(column, true);
+    }
+
+    public static BigQueryPredicate and(BigQueryPredicate... predicates) {
+        return new Junction("AND", Arrays.asList(predicates));
+    }
+
+    public static BigQueryPredicate or(BigQueryPredicate... predicates) {
+        return new Junction("OR", Arrays.asList(predicates));
+    }
+
+    /**
+     * Resolves the referenced column, which may be the dotted path of a field nested in RECORD
+     * columns, in the provided schema fields.
+     */
+    static TableFieldSchema resolveColumn(List<TableFieldSchema> fields, String column) {
+        List<TableFieldSchema> currentFields = fields;
+        TableFieldSchema field = null;
+        for (String fieldName : column.split("\\.")) {
+            if (currentFields == null) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "The column %s references a field nested in a non RECORD type.",
+                                column));
+            }
+            field =
+                    currentFields.stream()
+                            .filter(f -> f.getName().equalsIgnoreCase(fieldName))
+                            .findFirst()
+                            .orElseThrow(
+                                    () ->
+                                            new IllegalArgumentException(
+                                                    String.format(
+                                                            "The column %s does not exist in the"
+                                                                    + " table schema.",
+                                                            column)));
+            if ("REPEATED".equals(field.getMode())) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "The REPEATED column %s can not be used in a row restriction.",
+                                column));
+            }
+            currentFields = field.getFields();
+        }
+        return field;
+    }
+
+    static String quoteColumn(String column) {
+        return Arrays.stream(column.split("\\."))
+                .map(fieldName -> "`" + fieldName + "`")
+                .collect(Collectors.joining("."));
+    }
+
+    /**
+     * Checks the literal can be compared with the column.
+     *
+     * @return The BigQuery type of the column.
+     */
+    static String checkLiteral(TableFieldSchema field, String column, Object value) {
+        Preconditions.checkArgument(
+                value != null,
+                "Null literals are not supported, use the isNull predicate for column %s.",
+                column);
+        Preconditions.checkArgument(
+                !isNonFinite(value),
+                "The value %s of column %s is not a finite number.",
+                value,
+                column);
+        String type = field.getType().toUpperCase(Locale.ROOT);
+        if (!BIG_QUERY_TO_LITERAL_TYPES.get(type).contains(value.getClass())) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The value %s of type %s can not be compared with column %s of type"
+                                    + " %s.",
+                            value,
+                            value.getClass().getSimpleName(),
+                            column,
+                            type));
+        }
+        return type;
+    }
+
+    private static boolean isNonFinite(Object value) {
+        return (value instanceof Double && !Double.isFinite((Double) value))
+                || (value instanceof Float && !Float.isFinite((Float) value));
+    }
+
+    /**
+     * Formats the literal as a Standard SQL one.
+     *
+     * @param value The literal value.
+     * @param columnType The BigQuery type of the column the literal is compared with, once the
+     *     predicate was validated, which tells the decimal literals of BIGNUMERIC columns apart.
+     * @return The Standard SQL literal.
+     */
+    static String formatLiteral(Object value, @Nullable String columnType) {
+        if (value instanceof String) {
+            String escaped =
+                    ((String) value)
+                            .replace("\\", "\\\\")
+                            .replace("'", "\\'")
+                            .replace("\n", "\\n")
+                            .replace("\r", "\\r");
+            return "'" + escaped + "'";
+        } else if (value instanceof BigDecimal) {
+            // the values of BIGNUMERIC columns may not fit into a NUMERIC literal
+            String decimalType = "BIGNUMERIC".equals(columnType) ? "BIGNUMERIC" : "NUMERIC";
+            return decimalType + " '" + ((BigDecimal) value).toPlainString() + "'";
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? "TRUE" : "FALSE";
+        } else if (value instanceof LocalDate) {
+            return "DATE '" + value + "'";
+        } else if (value instanceof LocalTime) {
+            return "TIME '" + TIME_FORMATTER.format((LocalTime) value) + "'";
+        } else if (value instanceof LocalDateTime) {
+            return "DATETIME '" + DATETIME_FORMATTER.format((LocalDateTime) value) + "'";
+        } else if (value instanceof Instant) {
+            return "TIMESTAMP '"
+                    + DATETIME_FORMATTER.format(((Instant) value).atOffset(ZoneOffset.UTC))
+                    + "+00:00'";
+        } else if (value instanceof Number) {
+            Preconditions.checkArgument(
+                    !isNonFinite(value), "The value %s is not a finite number.", value);
+            return value.toString();
+        }
+        throw new IllegalArgumentException(
+                String.format(
+                        "Unsupported literal %s of type %s.",
+                        value, value.getClass().getSimpleName()));
+    }
+
+    /** A comparison between a column and a literal value. */
+    static class Comparison extends BigQueryPredicate {
+        private final String column;
+        private final String operator;
+        private final Serializable value;
+        @Nullable private String columnType;
+
+        Comparison(String column, String operator, Serializable value) {
+            this.column = Preconditions.checkNotNull(column);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public String toRowRestriction() {
+            return quoteColumn(column) + " " + operator + " " + formatLiteral(value, columnType);
+        }
+
+        @Override
+        void validate(List<TableFieldSchema> fields) {
+            columnType = checkLiteral(resolveColumn(fields, column), column, value);
+        }
+    }
+
+    /** Checks a column's value is one of the provided literals. */
+    static class In extends BigQueryPredicate {
+        private final String column;
+        private final List<Serializable> values;
+        @Nullable private String columnType;
+
+        In(String column, List<Serializable> values) {
+            this.column = Preconditions.checkNotNull(column);
+            this.values = values;
+        }
+
+        @Override
+        public String toRowRestriction() {
+            return quoteColumn(column)
+                    + " IN ("
+                    + values.stream()
+                            .map(value -> formatLiteral(value, columnType))
+                            .collect(Collectors.joining(", "))
+                    + ")";
+        }
+
+        @Override
+        void validate(List<TableFieldSchema> fields) {
+            TableFieldSchema field = resolveColumn(fields, column);
+            values.forEach(value -> checkLiteral(field, column, value));
+            columnType = field.getType().toUpperCase(Locale.ROOT);
+        }
+    }
+
+    /** Checks whether a column's value is, or is not, null. */
+    static class IsNull extends BigQueryPredicate {
+        private final String column;
+        private final boolean negated;
+
+        IsNull(String column, boolean negated) {
+            this.column = Preconditions.checkNotNull(column);
+            this.negated = negated;
+        }
+
+        @Override
+        public String toRowRestriction() {
+            return quoteColumn(column) + (negated ? " IS NOT NULL" : " IS NULL");
+        }
+
+        @Override
+        void validate(List<TableFieldSchema> fields) {
+            resolveColumn(fields, column);
+        }
+    }
+
+    /** The conjunction, or disjunction, of other predicates. */
+    static class Junction extends BigQueryPredicate {
+        private final String operator;
+        private final List<BigQueryPredicate> predicates;
+
+        Junction(String operator, List<BigQueryPredicate> predicates) {
+            Preconditions.checkArgument(
+                    !predicates.isEmpty(),
+                    "The %s predicate needs at least one operand.",
+                    operator);
+            this.operator = operator;
+            this.predicates = predicates;
+        }
+
+        @Override
+        public String toRowRestriction() {
+            return predicates.stream()
+                    .map(predicate -> "(" + predicate.toRowRestriction() + ")")
+                    .collect(Collectors.joining(" " + operator + " "));
+        }
+
+        @Override
+        void validate(List<TableFieldSchema> fields) {
+            predicates.forEach(predicate -> predicate.validate(fields));
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.config;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Preconditions;
+
+import com.google.auto.value.AutoValue;
+import com.google.cloud.bigquery.storage.v1.ArrowSerializationOptions.CompressionCodec;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.flink.bigquery.common.config.BigQueryConnectOptions;
+
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The options available to read data from BigQuery using the Storage Read API. */
+@AutoValue
+@PublicEvolving
+public abstract class BigQueryReadOptions implements Serializable {
+
+    public abstract BigQueryConnectOptions getBigQueryConnectOptions();
+
+    public abstract DataFormat getDataFormat();
+
+    public abstract CompressionCodec getArrowCompressionCodec();
+
+    public abstract Integer getMaxStreamCount();
+
+    public abstract List<String> getColumnNames();
+
+    @Nullable
+    public abstract BigQueryPredicate getRowRestriction();
+
+    public abstract Integer getMaxConcurrentStreams();
+
+    public abstract Integer getSplitsAhead();
+
+    public abstract Integer getMaxStreamRetries();
+
+    public abstract Integer getReadAheadQueueDepth();
+
+    public abstract Long getReadAheadMaxBytes();
+
+    public abstract Boolean getVirtualThreadReadAhead();
+
+    public abstract Boolean getZeroCopyReceive();
+
+    public abstract Integer getDecodeThreads();
+
+    public abstract Boolean getObjectReuse();
+
+    public abstract Long getReaderMemoryBudget();
+
+    @Nullable
+    public abstract String getEventTimeColumn();
+
+    public abstract Long getLimit();
+
+    /**
+     * Creates a builder for the instance, reading all the columns of the table as Arrow formatted
+     * data by default, one stream at a time per reader, with the stream of the next split opened
+     * ahead, and reading ahead up to 4 responses, or 64 MiB, of each stream. By default, there is
+     * no limit of rows to read.
+     *
+     * @return A Builder instance.
+     */
+    public static Builder builder() {
+        return new AutoValue_BigQueryReadOptions.Builder()
+                .setDataFormat(DataFormat.ARROW)
+                .setArrowCompressionCodec(CompressionCodec.COMPRESSION_UNSPECIFIED)
+                .setMaxStreamCount(0)
+                .setColumnNames(new ArrayList<>())
+                .setMaxConcurrentStreams(1)
+                .setSplitsAhead(1)
+                .setMaxStreamRetries(5)
+                .setReadAheadQueueDepth(4)
+                .setReadAheadMaxBytes(64L * 1024 * 1024)
+                .setVirtualThreadReadAhead(false)
+                .setZeroCopyReceive(false)
+                .setDecodeThreads(0)
+                .setObjectReuse(false)
+                .setReaderMemoryBudget(-1L)
+                .setLimit(-1L);
+    }
+
+    /**
+     * Transforms the instance into a builder instance for property modification.
+     *
+     * @return A {@link Builder} instance for the type.
+     */
+    public abstract Builder toBuilder();
+
+    /** Builder class for {@link BigQueryReadOptions}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+        /**
+         * Sets the connection options for the BigQuery table to read.
+         *
+         * @param connectOptions The BigQuery connection options.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setBigQueryConnectOptions(BigQueryConnectOptions connectOptions);
+
+        /**
+         * Sets the serialization format the read session will use to deliver the rows, either
+         * {@link DataFormat#ARROW} or {@link DataFormat#AVRO}.
+         *
+         * @param dataFormat The data format of the read session.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setDataFormat(DataFormat dataFormat);
+
+        /**
+         * Sets the codec the read session will use to compress the buffers of the Arrow record
+         * batches, either {@link CompressionCodec#LZ4_FRAME} or {@link CompressionCodec#ZSTD}.
+         * Compressing the batches reduces the data transferred for each stream, at the cost of
+         * decompressing them in the readers; it is only available for the Arrow data format. By
+         * default, the record batches are not compressed.
+         *
+         * @param compressionCodec The compression codec of the Arrow record batches.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setArrowCompressionCodec(CompressionCodec compressionCodec);
+
+        /**
+         * Sets the maximum number of read streams the read session can be split into. A value of
+         * zero lets the BigQuery service decide.
+         *
+         * @param maxStreamCount The maximum number of read streams.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setMaxStreamCount(Integer maxStreamCount);
+
+        /**
+         * Sets the names of the columns to read from the table. The projection is pushed down to
+         * the read session, so only the data of these columns is read and transferred, and the
+         * produced rows contain them in the order of the table schema. Fields nested in RECORD
+         * columns can be selected with their dotted path, like {@code payload.user.id}, so only
+         * those are read out of the RECORD. An empty list reads all the columns.
+         *
+         * @param columnNames The names, or dotted paths, of the columns to read.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setColumnNames(List<String> columnNames);
+
+        /**
+         * Sets the filter predicate pushed down to the read session, so only the rows matching it
+         * are read from the table. The predicate is validated against the table schema once the
+         * source is created.
+         *
+         * @param rowRestriction The filter predicate.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setRowRestriction(BigQueryPredicate rowRestriction);
+
+        /**
+         * Sets the number of read streams each source reader fetches concurrently. Since a single
+         * stream's throughput is usually well below the network bandwidth available to a reader,
+         * fetching several streams at once improves the throughput without raising the source
+         * parallelism. The streams are received concurrently only when the read ahead is enabled.
+         *
+         * @param maxConcurrentStreams The number of streams fetched at the same time by a reader.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setMaxConcurrentStreams(Integer maxConcurrentStreams);
+
+        /**
+         * Sets the number of splits each source reader holds ahead, on top of the ones it reads
+         * concurrently. The streams of those splits are opened, and their first responses read
+         * ahead, while the current splits are still being read, so the reader moves on to the
+         * next split without waiting for its assignment nor for the first response of its stream.
+         * A value of zero only requests a new split once another one is finished.
+         *
+         * @param splitsAhead The number of splits held ahead by a reader.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setSplitsAhead(Integer splitsAhead);
+
+        /**
+         * Sets the number of times in a row a source reader reopens the ReadRows stream of a
+         * split, from the last row it received, once the stream fails with a transient error,
+         * that is an UNAVAILABLE status, or an INTERNAL one reporting the reset of the stream. The
+         * stream is reopened after an exponential backoff, and the count is reset once the
+         * reopened stream delivers a response. Once the retries are exhausted, the error fails
+         * the reader. The ReadRows calls are not retried by the client library, so these are the
+         * only retries of a stream.
+         *
+         * @param maxStreamRetries The max number of consecutive retries of a split's stream.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setMaxStreamRetries(Integer maxStreamRetries);
+
+        /**
+         * Sets the number of ReadRows responses that can be received ahead, on a background
+         * thread, while the already received ones are being decoded and emitted. A value of zero
+         * disables the read ahead, and the responses get received by the fetching thread.
+         *
+         * @param readAheadQueueDepth The max number of responses read ahead per stream.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setReadAheadQueueDepth(Integer readAheadQueueDepth);
+
+        /**
+         * Sets the max accumulated size, in bytes, of the ReadRows responses read ahead for a
+         * stream.
+         *
+         * @param readAheadMaxBytes The max size of the responses read ahead per stream.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setReadAheadMaxBytes(Long readAheadMaxBytes);
+
+        /**
+         * Sets whether the streams are read ahead by virtual threads, one per open stream, instead
+         * of platform threads. This saves the memory and context switches of many platform
+         * threads when the readers fetch a large number of concurrent streams. Virtual threads are
+         * only available on JDK 21 or later, on older runtimes platform threads are used anyway.
+         * Disabled by default.
+         *
+         * @param virtualThreadReadAhead Whether the streams are read ahead by virtual threads.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setVirtualThreadReadAhead(Boolean virtualThreadReadAhead);
+
+        /**
+         * Sets whether the ReadRows responses are parsed straight from the buffers received by the
+         * gRPC transport, instead of being copied into heap memory first. The buffers are retained
+         * until the rows of their response have been emitted, which avoids copying the serialized
+         * rows and the allocation of large byte arrays for every response, at the cost of keeping
+         * the received buffers for longer. Disabled by default.
+         *
+         * @param zeroCopyReceive Whether the responses are parsed from the transport buffers.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setZeroCopyReceive(Boolean zeroCopyReceive);
+
+        /**
+         * Sets the number of threads each source reader uses to decode the ReadRows responses.
+         * With a positive value, the responses received for a split are decoded in parallel by a
+         * pool of that many threads, while their rows are still emitted in the order of the
+         * stream. By default, the responses are decoded one at a time by the reader.
+         *
+         * @param decodeThreads The number of threads decoding the responses of a reader.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setDecodeThreads(Integer decodeThreads);
+
+        /**
+         * Sets whether the readers reuse the instances of the rows they emit, mutating them in
+         * place for every row of a split instead of allocating a new one. This is only safe when
+         * the downstream operators do not keep references to the records they receive, the same
+         * contract of {@link org.apache.flink.api.common.ExecutionConfig#enableObjectReuse()},
+         * which is why the readers also reuse their rows when {@code pipeline.object-reuse} is
+         * set in their configuration. Disabled by default.
+         *
+         * @param objectReuse Whether the emitted rows are reused.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setObjectReuse(Boolean objectReuse);
+
+        /**
+         * Sets the max size, in bytes, of the ReadRows responses each source reader holds at the
+         * same time, accounting for the responses read ahead, being decoded and whose rows are
+         * waiting to be emitted. Once the budget is used up, the reader stops receiving responses
+         * until the rows of the held ones have been emitted, though every open stream can always
+         * hold one response, so the budget may be exceeded by up to one response per stream. The
+         * bound is approximate: the responses are accounted for by their serialized size, while
+         * the memory of their decoded rows is not accounted for. A zero or negative value means
+         * no budget, which is the default.
+         *
+         * @param readerMemoryBudget The max size of the responses held by a reader.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setReaderMemoryBudget(Long readerMemoryBudget);
+
+        /**
+         * Sets the name of a TIMESTAMP, or DATETIME, column holding the event time of the rows.
+         * The readers emit every row with the timestamp read from that column, so the watermarks
+         * are generated for each split by the source's {@link
+         * org.apache.flink.api.common.eventtime.WatermarkStrategy}, without the need of a
+         * timestamp assigner. The rows with a null event time are emitted without a timestamp.
+         * The column should be a top level one, and be part of the selected columns, if any.
+         *
+         * @param eventTimeColumn The name of the event time column.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setEventTimeColumn(String eventTimeColumn);
+
+        /**
+         * Sets the max number of rows to read from the table. Once the readers have emitted,
+         * altogether, that many rows, all the open streams are cancelled and no more splits get
+         * assigned. Since the readers report the emitted rows periodically, the source may emit
+         * a few more rows than the limit, but never more than the limit per reader. A negative
+         * value means no limit.
+         *
+         * @param limit The max number of rows to read.
+         * @return This {@link Builder} instance.
+         */
+        public abstract Builder setLimit(Long limit);
+
+        abstract BigQueryReadOptions autoBuild();
+
+        /**
+         * Creates the BigQueryReadOptions object, validating the provided configuration.
+         *
+         * @return the options instance.
+         */
+        public final BigQueryReadOptions build() {
+            BigQueryReadOptions readOptions = autoBuild();
+            Preconditions.checkState(
+                    readOptions.getDataFormat() == DataFormat.ARROW
+                            || readOptions.getDataFormat() == DataFormat.AVRO,
+                    "Unsupported data format %s for the read session.",
+                    readOptions.getDataFormat());
+            Preconditions.checkState(
+                    readOptions.getArrowCompressionCodec()
+                                    == CompressionCodec.COMPRESSION_UNSPECIFIED
+                            || readOptions.getDataFormat() == DataFormat.ARROW,
+                    "The compression codec %s is only available for the Arrow data format.",
+                    readOptions.getArrowCompressionCodec());
+            Preconditions.checkState(
+                    readOptions.getArrowCompressionCodec() != CompressionCodec.UNRECOGNIZED,
+                    "Unsupported compression codec for the Arrow record batches.");
+            Preconditions.checkState(
+                    readOptions.getMaxStreamCount() >= 0,
+                    "The max number of streams should be zero or positive.");
+            Preconditions.checkState(
+                    readOptions.getMaxConcurrentStreams() > 0,
+                    "The max number of concurrent streams should be positive.");
+            Preconditions.checkState(
+                    readOptions.getSplitsAhead() >= 0,
+                    "The number of splits ahead should be zero or positive.");
+            Preconditions.checkState(
+                    readOptions.getMaxStreamRetries() >= 0,
+                    "The max number of stream retries should be zero or positive.");
+            Preconditions.checkState(
+                    readOptions.getReadAheadQueueDepth() >= 0,
+                    "The read ahead queue depth should be zero or positive.");
+            Preconditions.checkState(
+                    readOptions.getReadAheadMaxBytes() > 0,
+                    "The read ahead max bytes should be positive.");
+            Preconditions.checkState(
+                    readOptions.getDecodeThreads() >= 0,
+                    "The number of decode threads should be zero or positive.");
+            return readOptions;
+        }
+    }
+}
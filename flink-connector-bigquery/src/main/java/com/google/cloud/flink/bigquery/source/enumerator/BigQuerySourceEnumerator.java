@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.enumerator;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.Boundedness;
+import org.apache.flink.api.connector.source.SourceEvent;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+
+import com.google.cloud.flink.bigquery.source.event.LimitReachedEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamAckEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamRequestEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamResponseEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitsProgressEvent;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitAssigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The enumerator class for {@link com.google.cloud.flink.bigquery.source.BigQuerySource}.
+ *
+ * <p>Once all the read session's streams have been assigned, readers asking for more work would
+ * stay idle while others may still have a large remainder of their streams to read. In that case
+ * the enumerator asks the reader of the least advanced split to split its stream, using the
+ * progress periodically reported by the readers, and assigns the remainder stream as a new split.
+ * The reader is acknowledged once the remainder is held by the enumerator, so it is part of the
+ * enumerator's checkpoints before the reader checkpoints the split with the primary stream.
+ *
+ * <p>When the source reads a limited number of rows, the enumerator also sums up the rows emitted
+ * by the readers; once the limit is reached the readers are asked to stop reading, and no more
+ * splits get assigned.
+ */
+@Internal
+public class BigQuerySourceEnumerator
+        implements SplitEnumerator<BigQuerySourceSplit, BigQuerySourceEnumState> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BigQuerySourceEnumerator.class);
+    // splits which have read more than this fraction of their stream are not worth splitting
+    private static final double MAX_PROGRESS_TO_SPLIT = 0.5;
+
+    private final Boundedness boundedness;
+    private final SplitEnumeratorContext<BigQuerySourceSplit> context;
+    private final BigQuerySourceSplitAssigner splitAssigner;
+    // a reader may have several pending requests, one per stream it can read concurrently
+    private final ArrayDeque<Integer> readersAwaitingSplit;
+    private final Map<Integer, Map<String, Double>> splitsProgressByReader;
+    private final Map<String, Integer> pendingStreamSplits;
+    private final Set<String> unsplittableSplits;
+    private final long rowsLimit;
+    private final Map<Integer, Long> emittedRowsByReader;
+    private boolean limitReached = false;
+
+    public BigQuerySourceEnumerator(
+            Boundedness boundedness,
+            SplitEnumeratorContext<BigQuerySourceSplit> context,
+            BigQuerySourceSplitAssigner splitAssigner) {
+        this(boundedness, context, splitAssigner, -1L);
+    }
+
+    public BigQuerySourceEnumerator(
+            Boundedness boundedness,
+            SplitEnumeratorContext<BigQuerySourceSplit> context,
+            BigQuerySourceSplitAssigner splitAssigner,
+            long rowsLimit) {
+        this.boundedness = boundedness;
+        this.context = context;
+        this.splitAssigner = splitAssigner;
+        this.rowsLimit = rowsLimit;
+        this.emittedRowsByReader = new HashMap<>();
+        this.readersAwaitingSplit = new ArrayDeque<>();
+        this.splitsProgressByReader = new HashMap<>();
+        this.pendingStreamSplits = new HashMap<>();
+        this.unsplittableSplits = new HashSet<>();
+    }
+
+    @Override
+    public void start() {
+        splitAssigner.open();
+    }
+
+    @Override
+    public void handleSplitRequest(int subtaskId, @Nullable String requesterHostname) {
+        if (!context.registeredReaders().containsKey(subtaskId)) {
+            // reader failed between sending the request and now. skip this request.
+            return;
+        }
+
+        readersAwaitingSplit.add(subtaskId);
+        assignSplits();
+    }
+
+    @Override
+    public void handleSourceEvent(int subtaskId, SourceEvent sourceEvent) {
+        if (sourceEvent instanceof SplitsProgressEvent) {
+            SplitsProgressEvent progress = (SplitsProgressEvent) sourceEvent;
+            splitsProgressByReader.put(subtaskId, progress.getProgressBySplitId());
+            emittedRowsByReader.put(subtaskId, progress.getEmittedRows());
+            checkLimitReached();
+        } else if (sourceEvent instanceof SplitStreamResponseEvent) {
+            SplitStreamResponseEvent response = (SplitStreamResponseEvent) sourceEvent;
+            LOG.info("Received stream split response {} from subtask {}.", response, subtaskId);
+            pendingStreamSplits.remove(response.getSplitId());
+            if (response.getRemainderSplit().isPresent()) {
+                splitAssigner.addSplitsBack(
+                        Collections.singletonList(response.getRemainderSplit().get()));
+                // the reader checkpoints the primary stream only once the remainder is held here
+                context.sendEventToSourceReader(
+                        subtaskId, new SplitStreamAckEvent(response.getSplitId()));
+            } else {
+                unsplittableSplits.add(response.getSplitId());
+            }
+        } else {
+            LOG.warn("Unexpected source event {} from subtask {}.", sourceEvent, subtaskId);
+            return;
+        }
+        assignSplits();
+    }
+
+    @Override
+    public void addSplitsBack(List<BigQuerySourceSplit> splits, int subtaskId) {
+        LOG.debug("BigQuery Source Enumerator adds splits back: {}", splits);
+        splitAssigner.addSplitsBack(splits);
+        // the failed reader will not report progress nor answer stream split requests anymore
+        splitsProgressByReader.remove(subtaskId);
+        pendingStreamSplits.values().removeIf(owner -> owner == subtaskId);
+    }
+
+    @Override
+    public void addReader(int subtaskId) {
+        LOG.debug("Adding reader {} to BigQuerySourceEnumerator.", subtaskId);
+    }
+
+    @Override
+    public BigQuerySourceEnumState snapshotState(long checkpointId) throws Exception {
+        BigQuerySourceEnumState state = splitAssigner.snapshotState(checkpointId);
+        LOG.debug("Checkpointing BigQuery source enumerator state: {}", state);
+        return state;
+    }
+
+    @Override
+    public void close() throws IOException {
+        splitAssigner.close();
+    }
+
+    private void checkLimitReached() {
+        if (limitReached || rowsLimit < 0) {
+            return;
+        }
+        long emittedRows = emittedRowsByReader.values().stream().mapToLong(Long::longValue).sum();
+        if (emittedRows < rowsLimit) {
+            return;
+        }
+        LOG.info(
+                "The readers emitted {} rows, reaching the limit of {}, stopping them.",
+                emittedRows,
+                rowsLimit);
+        limitReached = true;
+        for (Integer reader : context.registeredReaders().keySet()) {
+            context.sendEventToSourceReader(reader, new LimitReachedEvent());
+        }
+    }
+
+    private void assignSplits() {
+        final Iterator<Integer> awaitingReader = readersAwaitingSplit.iterator();
+
+        while (awaitingReader.hasNext()) {
+            int nextAwaiting = awaitingReader.next();
+            // if the reader that requested another split has failed in the meantime, remove
+            // it from the list of waiting readers
+            if (!context.registeredReaders().containsKey(nextAwaiting)) {
+                awaitingReader.remove();
+                continue;
+            }
+            if (limitReached) {
+                LOG.info("The limit of rows was reached, signaling subtask {}.", nextAwaiting);
+                context.signalNoMoreSplits(nextAwaiting);
+                awaitingReader.remove();
+                continue;
+            }
+            Optional<BigQuerySourceSplit> split = splitAssigner.getNext();
+            if (split.isPresent()) {
+                final BigQuerySourceSplit bqSplit = split.get();
+                context.assignSplit(bqSplit, nextAwaiting);
+                awaitingReader.remove();
+                LOG.info("Assign split {} to subtask {}", bqSplit, nextAwaiting);
+            } else if (splitAssigner.noMoreSplits()
+                    && !rebalanceStreams()
+                    && boundedness == Boundedness.BOUNDED) {
+                LOG.info("All splits have been assigned, signaling subtask {}.", nextAwaiting);
+                context.signalNoMoreSplits(nextAwaiting);
+                awaitingReader.remove();
+            } else {
+                // there is no available splits by now, skip assigning
+                break;
+            }
+        }
+    }
+
+    /**
+     * Requests the split of the least advanced stream being read, if there is one worth splitting.
+     *
+     * @return true if a stream split is in progress, and its remainder may be assigned later.
+     */
+    private boolean rebalanceStreams() {
+        if (!pendingStreamSplits.isEmpty()) {
+            return true;
+        }
+        String candidateSplitId = null;
+        int candidateOwner = -1;
+        double candidateProgress = MAX_PROGRESS_TO_SPLIT;
+        for (Map.Entry<Integer, Map<String, Double>> readerProgress :
+                splitsProgressByReader.entrySet()) {
+            if (!context.registeredReaders().containsKey(readerProgress.getKey())) {
+                continue;
+            }
+            for (Map.Entry<String, Double> splitProgress : readerProgress.getValue().entrySet()) {
+                if (splitProgress.getValue() < candidateProgress
+                        && !unsplittableSplits.contains(splitProgress.getKey())) {
+                    candidateSplitId = splitProgress.getKey();
+                    candidateOwner = readerProgress.getKey();
+                    candidateProgress = splitProgress.getValue();
+                }
+            }
+        }
+        if (candidateSplitId == null) {
+            return false;
+        }
+        // split the stream at the middle of its remaining rows
+        double fraction = candidateProgress + (1 - candidateProgress) / 2;
+        LOG.info(
+                "Requesting subtask {} to split the stream of {} at fraction {}.",
+                candidateOwner,
+                candidateSplitId,
+                fraction);
+        context.sendEventToSourceReader(
+                candidateOwner, new SplitStreamRequestEvent(candidateSplitId, fraction));
+        pendingStreamSplits.put(candidateSplitId, candidateOwner);
+        return true;
+    }
+}
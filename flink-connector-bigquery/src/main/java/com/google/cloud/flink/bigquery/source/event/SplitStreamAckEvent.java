@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.event;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.SourceEvent;
+
+/**
+ * Event sent by the enumerator to the source reader which split the stream of a split, once the
+ * enumerator holds the remainder split received with the {@link SplitStreamResponseEvent}. Until
+ * then the reader checkpoints the split with its original stream, which still covers the rows of
+ * the remainder, since the event carrying the remainder is not part of any checkpoint.
+ */
+@Internal
+public class SplitStreamAckEvent implements SourceEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final String splitId;
+
+    public SplitStreamAckEvent(String splitId) {
+        this.splitId = splitId;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    @Override
+    public String toString() {
+        return "SplitStreamAckEvent{" + "splitId=" + splitId + '}';
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.event;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.SourceEvent;
+
+/**
+ * Event sent by the enumerator to the source reader owning a split, requesting to split the
+ * split's stream at the given fraction, so its remainder can be read by another reader.
+ */
+@Internal
+public class SplitStreamRequestEvent implements SourceEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final String splitId;
+    private final double fraction;
+
+    public SplitStreamRequestEvent(String splitId, double fraction) {
+        this.splitId = splitId;
+        this.fraction = fraction;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    public double getFraction() {
+        return fraction;
+    }
+
+    @Override
+    public String toString() {
+        return "SplitStreamRequestEvent{" + "splitId=" + splitId + ", fraction=" + fraction + '}';
+    }
+}
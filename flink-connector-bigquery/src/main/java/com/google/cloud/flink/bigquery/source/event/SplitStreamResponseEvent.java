@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.event;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.SourceEvent;
+
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+
+import javax.annotation.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Event sent by a source reader to the enumerator as the answer of a {@link
+ * SplitStreamRequestEvent}, carrying the split for the remainder of the stream when the split
+ * succeeded.
+ */
+@Internal
+public class SplitStreamResponseEvent implements SourceEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final String splitId;
+    @Nullable private final BigQuerySourceSplit remainderSplit;
+
+    public SplitStreamResponseEvent(String splitId, @Nullable BigQuerySourceSplit remainderSplit) {
+        this.splitId = splitId;
+        this.remainderSplit = remainderSplit;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    public Optional<BigQuerySourceSplit> getRemainderSplit() {
+        return Optional.ofNullable(remainderSplit);
+    }
+
+    @Override
+    public String toString() {
+        return "SplitStreamResponseEvent{"
+                + "splitId="
+                + splitId
+                + ", remainderSplit="
+                + remainderSplit
+                + '}';
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.event;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.SourceEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event sent by a source reader to the enumerator, reporting the progress of all the splits being
+ * read by it and the total number of rows it has emitted so far. The progress of a split is the
+ * fraction of its stream's rows already read, as reported by the BigQuery Storage Read API.
+ */
+@Internal
+public class SplitsProgressEvent implements SourceEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final HashMap<String, Double> progressBySplitId;
+    private final long emittedRows;
+
+    public SplitsProgressEvent(Map<String, Double> progressBySplitId, long emittedRows) {
+        this.progressBySplitId = new HashMap<>(progressBySplitId);
+        this.emittedRows = emittedRows;
+    }
+
+    public Map<String, Double> getProgressBySplitId() {
+        return progressBySplitId;
+    }
+
+    public long getEmittedRows() {
+        return emittedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "SplitsProgressEvent{"
+                + "progressBySplitId="
+                + progressBySplitId
+                + ", emittedRows="
+                + emittedRows
+                + '}';
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.flink.bigquery.services.BigQueryServices;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamRequestEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamResponseEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitsProgressEvent;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The state shared between a {@link BigQuerySourceReader}, which runs in the task thread and
+ * exchanges events with the enumerator, and its {@link BigQuerySourceSplitReader}, which runs in
+ * the fetcher thread. It carries the stream split requests and their responses, the progress of
+ * the splits being read and the name of the stream currently backing each split, which changes
+ * once a split's stream gets split and the enumerator acknowledges it holds the remainder.
+ *
+ * <p>It also accounts for the rows emitted by the reader, when the source reads a limited number
+ * of rows, cancelling all the open streams once no more rows should be read.
+ */
+@Internal
+public class BigQueryReaderStreamsContext {
+
+    private final Queue<SplitStreamRequestEvent> splitRequests = new ConcurrentLinkedQueue<>();
+    private final Queue<SplitStreamResponseEvent> splitResponses = new ConcurrentLinkedQueue<>();
+    private final Map<String, String> currentStreamNames = new ConcurrentHashMap<>();
+    private final Map<String, String> unacknowledgedStreamNames = new ConcurrentHashMap<>();
+    private final Map<String, Double> progressBySplitId = new ConcurrentHashMap<>();
+    private final Map<String, BigQueryServices.BigQueryServerStream<ReadRowsResponse>>
+            openStreams = new ConcurrentHashMap<>();
+    private final long rowsLimit;
+    private volatile boolean progressChanged = false;
+    private volatile boolean readingCancelled = false;
+    // only accessed from the task thread
+    private long emittedRows = 0L;
+    private long reportedEmittedRows = 0L;
+
+    /**
+     * Creates the context for a reader.
+     *
+     * @param rowsLimit The max number of rows the reader should emit, a negative value means no
+     *     limit.
+     */
+    public BigQueryReaderStreamsContext(long rowsLimit) {
+        this.rowsLimit = rowsLimit;
+    }
+
+    /**
+     * Accounts for a row about to be emitted, checking first the limit of rows was not reached.
+     * Called from the task thread.
+     *
+     * @return true if the row can be emitted, false otherwise.
+     */
+    boolean acquireRow() {
+        if (rowsLimit >= 0 && emittedRows >= rowsLimit) {
+            cancelReading();
+            return false;
+        }
+        emittedRows++;
+        return true;
+    }
+
+    /** Stops the reading, cancelling all the open streams. May be called from any thread. */
+    void cancelReading() {
+        if (readingCancelled) {
+            return;
+        }
+        readingCancelled = true;
+        openStreams.values().forEach(BigQueryServices.BigQueryServerStream::cancel);
+    }
+
+    boolean isReadingCancelled() {
+        return readingCancelled;
+    }
+
+    boolean hasRowsLimit() {
+        return rowsLimit >= 0;
+    }
+
+    void registerStream(
+            String splitId, BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream) {
+        openStreams.put(splitId, stream);
+        // the reading may have been cancelled while the stream was being opened
+        if (readingCancelled) {
+            stream.cancel();
+        }
+    }
+
+    void unregisterStream(String splitId) {
+        openStreams.remove(splitId);
+    }
+
+    void requestStreamSplit(SplitStreamRequestEvent request) {
+        splitRequests.add(request);
+    }
+
+    @Nullable
+    SplitStreamRequestEvent pollStreamSplitRequest() {
+        return splitRequests.poll();
+    }
+
+    void completeStreamSplit(SplitStreamResponseEvent response) {
+        splitResponses.add(response);
+    }
+
+    @Nullable
+    SplitStreamResponseEvent pollStreamSplitResponse() {
+        return splitResponses.poll();
+    }
+
+    /**
+     * Records the split is read from the primary stream of a stream split. The split keeps being
+     * checkpointed with its previous stream, which still covers the rows of the remainder, until
+     * the enumerator acknowledges the remainder split.
+     */
+    void switchStream(String splitId, String streamName) {
+        unacknowledgedStreamNames.put(splitId, streamName);
+    }
+
+    void acknowledgeStreamSwitch(String splitId) {
+        String streamName = unacknowledgedStreamNames.remove(splitId);
+        if (streamName != null) {
+            currentStreamNames.put(splitId, streamName);
+        }
+    }
+
+    Optional<String> currentStreamName(String splitId) {
+        return Optional.ofNullable(currentStreamNames.get(splitId));
+    }
+
+    void updateProgress(String splitId, double progress) {
+        progressBySplitId.put(splitId, progress);
+        progressChanged = true;
+    }
+
+    void removeStream(String splitId) {
+        currentStreamNames.remove(splitId);
+        unacknowledgedStreamNames.remove(splitId);
+    }
+
+    void removeProgress(String splitId) {
+        progressBySplitId.remove(splitId);
+        progressChanged = true;
+    }
+
+    Optional<SplitsProgressEvent> pollProgress() {
+        if (!progressChanged && emittedRows == reportedEmittedRows) {
+            return Optional.empty();
+        }
+        progressChanged = false;
+        reportedEmittedRows = emittedRows;
+        return Optional.of(new SplitsProgressEvent(progressBySplitId, emittedRows));
+    }
+}
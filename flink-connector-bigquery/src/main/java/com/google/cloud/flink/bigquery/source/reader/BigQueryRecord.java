@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.RowData;
+
+/**
+ * A decoded row, along with its position in the split's stream: the offset of the first row of
+ * the ReadRows response containing it and its index inside that response. A single instance is
+ * reused for all the rows of a response, so the position tracking does not allocate per row.
+ */
+@Internal
+public class BigQueryRecord {
+    private final long responseOffset;
+    private RowData row;
+    private long rowIndex;
+
+    BigQueryRecord(long responseOffset) {
+        this.responseOffset = responseOffset;
+        this.rowIndex = -1;
+    }
+
+    BigQueryRecord next(RowData row) {
+        this.row = row;
+        this.rowIndex++;
+        return this;
+    }
+
+    public RowData getRow() {
+        return row;
+    }
+
+    public long getResponseOffset() {
+        return responseOffset;
+    }
+
+    public long getRowIndex() {
+        return rowIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "BigQueryRecord{"
+                + "responseOffset="
+                + responseOffset
+                + ", rowIndex="
+                + rowIndex
+                + ", row="
+                + row
+                + '}';
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.SourceOutput;
+import org.apache.flink.connector.base.source.reader.RecordEmitter;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.TimestampType;
+
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitState;
+
+import javax.annotation.Nullable;
+
+/**
+ * The {@link RecordEmitter} implementation for {@link BigQuerySourceReader}. Emits the decoded
+ * rows and keeps track of the split's read offset, as the position of the last emitted row inside
+ * its ReadRows response. Once the reader emitted the max number of rows it should read, if any,
+ * the remaining rows are dropped.
+ *
+ * <p>When the read options name an event time column, the rows are emitted with the timestamp
+ * read from their decoded value, through the output of their split, so the watermarks are
+ * generated per split.
+ */
+@Internal
+public class BigQueryRecordEmitter
+        implements RecordEmitter<BigQueryRecord, RowData, BigQuerySourceSplitState> {
+
+    private final BigQueryReaderStreamsContext streamsContext;
+    // the position of the event time column in the rows, -1 without event time column
+    private final int eventTimeField;
+    private final int eventTimePrecision;
+
+    public BigQueryRecordEmitter(
+            BigQueryReaderStreamsContext streamsContext,
+            RowType rowType,
+            @Nullable String eventTimeColumn) {
+        this.streamsContext = streamsContext;
+        if (eventTimeColumn == null) {
+            this.eventTimeField = -1;
+            this.eventTimePrecision = 0;
+        } else {
+            this.eventTimeField = eventTimeFieldIndex(rowType, eventTimeColumn);
+            this.eventTimePrecision =
+                    ((TimestampType) rowType.getTypeAt(eventTimeField)).getPrecision();
+        }
+    }
+
+    /**
+     * Finds the position of the event time column in the rows.
+     *
+     * @param rowType The type of the rows.
+     * @param eventTimeColumn The name of the event time column.
+     * @return The position of the column in the rows.
+     * @throws IllegalArgumentException If the rows have no such column, or its type is not a
+     *     timestamp.
+     */
+    public static int eventTimeFieldIndex(RowType rowType, String eventTimeColumn) {
+        int index = rowType.getFieldNames().indexOf(eventTimeColumn);
+        if (index < 0) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The event time column %s is not one of the read columns %s.",
+                            eventTimeColumn, rowType.getFieldNames()));
+        }
+        LogicalType type = rowType.getTypeAt(index);
+        if (type.getTypeRoot() != LogicalTypeRoot.TIMESTAMP_WITHOUT_TIME_ZONE) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The event time column %s should be a TIMESTAMP or DATETIME column,"
+                                    + " not %s.",
+                            eventTimeColumn, type));
+        }
+        return index;
+    }
+
+    @Override
+    public void emitRecord(
+            BigQueryRecord record,
+            SourceOutput<RowData> output,
+            BigQuerySourceSplitState splitState) {
+        if (!streamsContext.acquireRow()) {
+            return;
+        }
+        RowData row = record.getRow();
+        if (eventTimeField < 0 || row.isNullAt(eventTimeField)) {
+            output.collect(row);
+        } else {
+            output.collect(
+                    row, row.getTimestamp(eventTimeField, eventTimePrecision).getMillisecond());
+        }
+        splitState.updateOffset(record.getResponseOffset(), record.getRowIndex() + 1);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.connector.source.ReaderOutput;
+import org.apache.flink.api.connector.source.SourceEvent;
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.configuration.PipelineOptions;
+import org.apache.flink.connector.base.source.reader.SingleThreadMultiplexSourceReaderBase;
+import org.apache.flink.core.io.InputStatus;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.event.LimitReachedEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamAckEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamRequestEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamResponseEvent;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * The BigQuery source reader. All the splits assigned to a reader are fetched by a single {@link
+ * BigQuerySourceSplitReader}, which reads several of them concurrently. The reader requests as many
+ * splits as concurrent streams are configured, plus the splits it holds ahead, and a new split
+ * every time one of them is completed.
+ *
+ * <p>The reader periodically reports the progress of its splits to the enumerator, which uses it
+ * to request the split of the slowest streams once other readers run out of work. When the source
+ * reads a limited number of rows the reports also include the rows emitted, so the enumerator can
+ * stop all the readers once the limit is reached.
+ *
+ * <p>A split whose stream was split keeps being checkpointed with its original stream until the
+ * enumerator acknowledges it received the remainder, so the remainder rows are not lost when
+ * restoring from a checkpoint taken while the remainder was on its way to the enumerator.
+ *
+ * <p>When the job enables object reuse through its configuration, the reader reuses the emitted
+ * rows even if the read options do not ask for it.
+ */
+@Internal
+public class BigQuerySourceReader
+        extends SingleThreadMultiplexSourceReaderBase<
+                BigQueryRecord, RowData, BigQuerySourceSplit, BigQuerySourceSplitState> {
+    private static final Logger LOG = LoggerFactory.getLogger(BigQuerySourceReader.class);
+
+    private static final long PROGRESS_REPORT_INTERVAL_MILLIS = 5000L;
+    // with a limit of rows the emitted rows are reported more often, to stop early
+    private static final long LIMITED_PROGRESS_REPORT_INTERVAL_MILLIS = 200L;
+
+    private final int maxAssignedSplits;
+    private final BigQueryReaderStreamsContext streamsContext;
+    private long lastProgressReportMillis = 0L;
+
+    public BigQuerySourceReader(
+            BigQueryReadOptions readOptions, RowType rowType, SourceReaderContext context) {
+        this(
+                withObjectReuse(readOptions, context),
+                rowType,
+                context,
+                new BigQueryReaderStreamsContext(readOptions.getLimit()));
+    }
+
+    private BigQuerySourceReader(
+            BigQueryReadOptions readOptions,
+            RowType rowType,
+            SourceReaderContext context,
+            BigQueryReaderStreamsContext streamsContext) {
+        super(
+                () -> new BigQuerySourceSplitReader(readOptions, rowType, streamsContext),
+                new BigQueryRecordEmitter(
+                        streamsContext, rowType, readOptions.getEventTimeColumn()),
+                context.getConfiguration(),
+                context);
+        this.maxAssignedSplits =
+                readOptions.getMaxConcurrentStreams() + readOptions.getSplitsAhead();
+        this.streamsContext = streamsContext;
+    }
+
+    private static BigQueryReadOptions withObjectReuse(
+            BigQueryReadOptions readOptions, SourceReaderContext context) {
+        if (readOptions.getObjectReuse()
+                || !context.getConfiguration().get(PipelineOptions.OBJECT_REUSE)) {
+            return readOptions;
+        }
+        return readOptions.toBuilder().setObjectReuse(true).build();
+    }
+
+    @Override
+    public void start() {
+        for (int i = getNumberOfCurrentlyAssignedSplits(); i < maxAssignedSplits; i++) {
+            context.sendSplitRequest();
+        }
+    }
+
+    @Override
+    public InputStatus pollNext(ReaderOutput<RowData> output) throws Exception {
+        InputStatus status = super.pollNext(output);
+        sendStreamsEvents(false);
+        return status;
+    }
+
+    @Override
+    public void handleSourceEvents(SourceEvent sourceEvent) {
+        if (sourceEvent instanceof SplitStreamRequestEvent) {
+            LOG.debug("Received stream split request {}.", sourceEvent);
+            streamsContext.requestStreamSplit((SplitStreamRequestEvent) sourceEvent);
+        } else if (sourceEvent instanceof SplitStreamAckEvent) {
+            LOG.debug("Received stream split acknowledgement {}.", sourceEvent);
+            streamsContext.acknowledgeStreamSwitch(
+                    ((SplitStreamAckEvent) sourceEvent).getSplitId());
+        } else if (sourceEvent instanceof LimitReachedEvent) {
+            LOG.info("The limit of rows to read was reached, cancelling the open streams.");
+            streamsContext.cancelReading();
+        } else {
+            super.handleSourceEvents(sourceEvent);
+        }
+    }
+
+    @Override
+    protected void onSplitFinished(Map<String, BigQuerySourceSplitState> finishedSplitIds) {
+        LOG.debug("Finished splits {}, requesting more.", finishedSplitIds.keySet());
+        finishedSplitIds.keySet().forEach(streamsContext::removeStream);
+        // the enumerator should know right away these splits are not a candidate for splitting
+        sendStreamsEvents(true);
+        finishedSplitIds.forEach((splitId, state) -> context.sendSplitRequest());
+    }
+
+    @Override
+    protected BigQuerySourceSplitState initializedState(BigQuerySourceSplit split) {
+        return new BigQuerySourceSplitState(split);
+    }
+
+    @Override
+    protected BigQuerySourceSplit toSplitType(String splitId, BigQuerySourceSplitState splitState) {
+        BigQuerySourceSplit split = splitState.toBigQuerySourceSplit();
+        // once split, and the remainder acknowledged by the enumerator, the split's rows are read
+        // from the primary stream at the same offsets
+        return streamsContext
+                .currentStreamName(splitId)
+                .map(streamName -> new BigQuerySourceSplit(streamName, split.getOffset()))
+                .orElse(split);
+    }
+
+    private void sendStreamsEvents(boolean forceProgressReport) {
+        SplitStreamResponseEvent response;
+        while ((response = streamsContext.pollStreamSplitResponse()) != null) {
+            context.sendSourceEventToCoordinator(response);
+        }
+        long now = System.currentTimeMillis();
+        long reportInterval =
+                streamsContext.hasRowsLimit()
+                        ? LIMITED_PROGRESS_REPORT_INTERVAL_MILLIS
+                        : PROGRESS_REPORT_INTERVAL_MILLIS;
+        if (forceProgressReport || now - lastProgressReportMillis >= reportInterval) {
+            streamsContext
+                    .pollProgress()
+                    .ifPresent(
+                            progress -> {
+                                context.sendSourceEventToCoordinator(progress);
+                                lastProgressReportMillis = now;
+                            });
+        }
+    }
+}
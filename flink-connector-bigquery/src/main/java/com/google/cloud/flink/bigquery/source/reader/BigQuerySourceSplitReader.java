@@ -0,0 +1,841 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitReader;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsAddition;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsChange;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamRequest;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamResponse;
+import com.google.cloud.flink.bigquery.services.BigQueryServices;
+import com.google.cloud.flink.bigquery.services.BigQueryServicesFactory;
+import com.google.cloud.flink.bigquery.services.MemoryBudget;
+import com.google.cloud.flink.bigquery.services.PrefetchingServerStream;
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamRequestEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamResponseEvent;
+import com.google.cloud.flink.bigquery.source.reader.deserializer.ArrowReadRowsResponseDecoder;
+import com.google.cloud.flink.bigquery.source.reader.deserializer.AvroReadRowsResponseDecoder;
+import com.google.cloud.flink.bigquery.source.reader.deserializer.ReadRowsResponseDecoder;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import io.grpc.Status;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A split reader for {@link BigQuerySourceSplit}s. Each split is read by opening a ReadRows
+ * stream at the split's offset, and every response received is handed, as a whole, to the
+ * decoder of the read session's data format. Unless disabled in the read options, the responses
+ * of the stream are received ahead by a background thread, so the network receive overlaps with
+ * the decoding and emission of the rows. On JDK 21 or later, the read ahead can run on virtual
+ * threads, one per open stream, when enabled in the read options.
+ *
+ * <p>Up to the configured number of concurrent streams are kept open at the same time, and the
+ * responses of the open streams are fetched in a round-robin fashion, so every split progresses
+ * at the same pace. The streams of the splits held ahead by the reader are opened ahead too, so
+ * their first responses are already received once they take the place of a finished stream.
+ *
+ * <p>When requested by the enumerator, the stream of an open split is split in two: the reader
+ * continues reading the primary stream from its current offset, and the remainder stream is handed
+ * back to the enumerator as a new split.
+ *
+ * <p>When configured with decode threads, the responses received for a split are decoded in
+ * parallel by a pool of threads, and their records are handed over in the order of the stream, so
+ * the split offsets stay consistent.
+ *
+ * <p>When enabled in the read options, the responses are parsed straight from the buffers received
+ * by the transport, which are released once the rows of the response have been emitted.
+ *
+ * <p>When configured with a memory budget, the responses are reserved from it once received, and
+ * released once their rows have been emitted, so the reader stops receiving responses, for all its
+ * streams, while the budget is used up. The budget is a soft bound counting the serialized size of
+ * the responses only, so the memory actually held by the reader is approximate.
+ *
+ * <p>While the responses are read ahead, the reader waits for them in a way {@link #wakeUp()} can
+ * interrupt, so the fetcher promptly handles the split changes, pauses and shutdowns requested
+ * while a stream is slow to respond. Without read ahead, the responses are received by the
+ * fetching thread, which can not be woken up until the next response arrives, though waiting for
+ * the memory budget can still be interrupted.
+ *
+ * <p>Splits can be paused, for the watermark alignment of the source: the streams of paused splits
+ * are not read, so no more responses are pulled from them once their read ahead queue is full,
+ * and paused splits do not count against the concurrent streams, so the splits the alignment
+ * waits for can always be opened.
+ *
+ * <p>When the stream of a split fails with a transient error, it is reopened at the offset of the
+ * next row to receive, after an exponential backoff, so the reader does not fail and restart
+ * from the last checkpoint. The other streams are still read while the failed one waits.
+ *
+ * <p>Once the reading gets cancelled, because the source's limit of rows was reached, all the open
+ * streams are closed and all the splits assigned to the reader are reported as finished.
+ */
+@Internal
+public class BigQuerySourceSplitReader
+        implements SplitReader<BigQueryRecord, BigQuerySourceSplit> {
+    private static final Logger LOG = LoggerFactory.getLogger(BigQuerySourceSplitReader.class);
+    private static final long DECODE_TERMINATION_TIMEOUT_SECONDS = 10L;
+    // stream split requests and cancellations do not wake up the reader, so they are checked
+    // periodically while no stream can be read
+    private static final long IDLE_WAIT_MILLIS = 100L;
+    private static final long RETRY_INITIAL_BACKOFF_MILLIS = 500L;
+    private static final long RETRY_MAX_BACKOFF_MILLIS = 30_000L;
+    // the backoff reaches its max well before the doubling would overflow
+    private static final int RETRY_MAX_BACKOFF_DOUBLINGS = 16;
+    // the descriptions of the INTERNAL statuses reporting the reset of a stream, the only
+    // internal errors worth a retry
+    private static final List<String> STREAM_RESET_DESCRIPTIONS =
+            Arrays.asList("RST_STREAM", "Received unexpected EOS on DATA frame from server");
+
+    private final BigQueryReadOptions readOptions;
+    private final RowType rowType;
+    private final BigQueryReaderStreamsContext streamsContext;
+    private final Queue<BigQuerySourceSplit> assignedSplits = new ArrayDeque<>();
+    private final List<SplitStream> openStreams = new ArrayList<>();
+    private final Queue<SplitStream> preopenedStreams = new ArrayDeque<>();
+    private final Set<String> pausedSplits = new HashSet<>();
+    @Nullable private final MemoryBudget memoryBudget;
+    private final AtomicBoolean wakeUpRequested = new AtomicBoolean(false);
+    private final Object wakeUpLock = new Object();
+
+    private BigQueryServices.StorageReadClient storageReadClient;
+    private BufferAllocator allocator;
+    private ExecutorService readAheadExecutor;
+    private ExecutorService decodeExecutor;
+    private int nextStreamIndex = 0;
+    @Nullable private volatile PrefetchingServerStream<ReadRowsResponse> awaitedStream;
+
+    public BigQuerySourceSplitReader(
+            BigQueryReadOptions readOptions,
+            RowType rowType,
+            BigQueryReaderStreamsContext streamsContext) {
+        this.readOptions = readOptions;
+        this.rowType = rowType;
+        this.streamsContext = streamsContext;
+        this.memoryBudget =
+                readOptions.getReaderMemoryBudget() > 0
+                        ? new MemoryBudget(readOptions.getReaderMemoryBudget())
+                        : null;
+    }
+
+    @Override
+    public RecordsWithSplitIds<BigQueryRecord> fetch() throws IOException {
+        if (streamsContext.isReadingCancelled()) {
+            return finishAllSplits();
+        }
+        while (resumedStreamCount() < readOptions.getMaxConcurrentStreams()) {
+            SplitStream preopened = pollResumed(preopenedStreams, splitStream -> splitStream.split);
+            if (preopened != null) {
+                openStreams.add(preopened);
+                continue;
+            }
+            BigQuerySourceSplit split = pollResumed(assignedSplits, Function.identity());
+            if (split == null) {
+                break;
+            }
+            openStreams.add(openSplit(split));
+        }
+        while (preopenedStreams.size() < readOptions.getSplitsAhead()) {
+            BigQuerySourceSplit split = pollResumed(assignedSplits, Function.identity());
+            if (split == null) {
+                break;
+            }
+            LOG.info("Opening ahead the stream of split {}.", split.splitId());
+            preopenedStreams.add(openSplit(split));
+        }
+        handleStreamSplitRequests();
+        long retryWaitMillis = reopenFailedStreams();
+        int streamIndex = nextResumedStreamIndex();
+        if (streamIndex < 0) {
+            if (retryWaitMillis > 0) {
+                // all the streams not paused wait to be reopened
+                awaitWakeUp(Math.min(retryWaitMillis, IDLE_WAIT_MILLIS));
+            } else if (!openStreams.isEmpty()
+                    || !preopenedStreams.isEmpty()
+                    || !assignedSplits.isEmpty()) {
+                // all the splits are paused, waits for any of them to be resumed
+                awaitWakeUp(IDLE_WAIT_MILLIS);
+            }
+            return BigQuerySplitRecords.empty();
+        }
+        SplitStream splitStream = openStreams.get(streamIndex);
+        String splitId = splitStream.split.splitId();
+        if (splitStream.pendingDecodes.isEmpty()
+                && (!awaitBudget() || !awaitResponses(splitStream))) {
+            return BigQuerySplitRecords.empty();
+        }
+        try {
+            BigQuerySplitRecords records =
+                    readOptions.getDecodeThreads() > 0
+                            ? nextDecodedRecords(splitStream)
+                            : nextRecords(splitStream);
+            if (records != null) {
+                nextStreamIndex = streamIndex + 1;
+                return records;
+            }
+        } catch (RuntimeException ex) {
+            if (streamsContext.isReadingCancelled()) {
+                // the streams are expected to fail once cancelled
+                return finishAllSplits();
+            }
+            if (isTransient(ex)
+                    && splitStream.failedAttempts < readOptions.getMaxStreamRetries()) {
+                scheduleReopen(splitStream, ex);
+                nextStreamIndex = streamIndex + 1;
+                return BigQuerySplitRecords.empty();
+            }
+            throw new IOException(
+                    String.format("Problems while reading stream %s.", splitStream.streamName),
+                    ex);
+        }
+        LOG.info("Finished reading split {}.", splitId);
+        // the next stream in the rotation takes the index of the finished one
+        openStreams.remove(streamIndex);
+        nextStreamIndex = streamIndex;
+        closeStream(splitStream);
+        return BigQuerySplitRecords.finishedSplit(splitId);
+    }
+
+    private static boolean isTransient(Throwable error) {
+        Status status = Status.fromThrowable(error);
+        if (status.getCode() == Status.Code.UNAVAILABLE) {
+            return true;
+        }
+        if (status.getCode() != Status.Code.INTERNAL || status.getDescription() == null) {
+            return false;
+        }
+        return STREAM_RESET_DESCRIPTIONS.stream().anyMatch(status.getDescription()::contains);
+    }
+
+    private void scheduleReopen(SplitStream splitStream, RuntimeException error) {
+        splitStream.failedAttempts++;
+        long backoffMillis =
+                Math.min(
+                        RETRY_INITIAL_BACKOFF_MILLIS
+                                << Math.min(
+                                        splitStream.failedAttempts - 1,
+                                        RETRY_MAX_BACKOFF_DOUBLINGS),
+                        RETRY_MAX_BACKOFF_MILLIS);
+        splitStream.reopenAtMillis = System.currentTimeMillis() + backoffMillis;
+        LOG.warn(
+                String.format(
+                        "Stream %s failed at offset %s, reopening it in %s ms (attempt %s of %s).",
+                        splitStream.streamName,
+                        splitStream.readOffset,
+                        backoffMillis,
+                        splitStream.failedAttempts,
+                        readOptions.getMaxStreamRetries()),
+                error);
+    }
+
+    /**
+     * Reopens the failed streams whose backoff is over, at the offset of the next row to receive.
+     *
+     * @return The time left until the next failed stream can be reopened, or zero if none.
+     */
+    private long reopenFailedStreams() throws IOException {
+        long now = System.currentTimeMillis();
+        long waitMillis = 0;
+        for (SplitStream splitStream : openStreams) {
+            if (splitStream.reopenAtMillis < 0) {
+                continue;
+            }
+            if (splitStream.reopenAtMillis > now) {
+                long remaining = splitStream.reopenAtMillis - now;
+                waitMillis = waitMillis == 0 ? remaining : Math.min(waitMillis, remaining);
+                continue;
+            }
+            LOG.info(
+                    "Reopening stream {} at offset {}.",
+                    splitStream.streamName,
+                    splitStream.readOffset);
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream =
+                    readRows(splitStream.streamName, splitStream.readOffset);
+            splitStream.switchTo(splitStream.streamName, stream, stream.iterator());
+            splitStream.reopenAtMillis = -1L;
+            streamsContext.registerStream(splitStream.split.splitId(), stream);
+        }
+        return waitMillis;
+    }
+
+    private int resumedStreamCount() {
+        return (int)
+                openStreams.stream()
+                        .filter(splitStream -> !isPaused(splitStream.split))
+                        .count();
+    }
+
+    /** Removes and returns the first element of the queue whose split is not paused, if any. */
+    @Nullable
+    private <T> T pollResumed(Queue<T> queue, Function<T, BigQuerySourceSplit> splitOf) {
+        Iterator<T> elements = queue.iterator();
+        while (elements.hasNext()) {
+            T element = elements.next();
+            if (!isPaused(splitOf.apply(element))) {
+                elements.remove();
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the next open stream in the rotation neither paused nor waiting to be
+     * reopened, if any, or -1.
+     */
+    private int nextResumedStreamIndex() {
+        for (int i = 0; i < openStreams.size(); i++) {
+            int streamIndex = (nextStreamIndex + i) % openStreams.size();
+            SplitStream splitStream = openStreams.get(streamIndex);
+            if (!isPaused(splitStream.split) && splitStream.reopenAtMillis < 0) {
+                return streamIndex;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isPaused(BigQuerySourceSplit split) {
+        return pausedSplits.contains(split.splitId());
+    }
+
+    /**
+     * Waits until the reader gets woken up, or the timeout elapses.
+     *
+     * @return Whether the reader was woken up.
+     */
+    private boolean awaitWakeUp(long timeoutMillis) throws IOException {
+        synchronized (wakeUpLock) {
+            try {
+                if (!wakeUpRequested.get()) {
+                    wakeUpLock.wait(timeoutMillis);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a stream to read.", ex);
+            }
+            return wakeUpRequested.getAndSet(false);
+        }
+    }
+
+    /**
+     * Waits until the memory budget has some memory available, when the responses are received
+     * by the fetching thread, unless the reader gets woken up meanwhile.
+     *
+     * @return Whether a response can be received, false if the reader was woken up.
+     */
+    private boolean awaitBudget() throws IOException {
+        // the responses read ahead are reserved from the budget by the prefetching thread
+        while (reservesOnReceive() && !memoryBudget.hasAvailable()) {
+            // the budget is released by the emitting thread, so it is checked periodically
+            if (awaitWakeUp(IDLE_WAIT_MILLIS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean reservesOnReceive() {
+        return memoryBudget != null && readOptions.getReadAheadQueueDepth() == 0;
+    }
+
+    /**
+     * Waits until the next response of the stream has been read ahead, unless the reader gets
+     * woken up meanwhile.
+     *
+     * @return Whether the stream can be read without blocking, false if the reader was woken up.
+     */
+    private boolean awaitResponses(SplitStream splitStream) throws IOException {
+        if (!(splitStream.stream instanceof PrefetchingServerStream)) {
+            return true;
+        }
+        PrefetchingServerStream<ReadRowsResponse> stream =
+                (PrefetchingServerStream<ReadRowsResponse>) splitStream.stream;
+        // publishes the awaited stream before checking for wake ups, see wakeUp()
+        awaitedStream = stream;
+        try {
+            if (wakeUpRequested.getAndSet(false)) {
+                return false;
+            }
+            if (stream.awaitNext()) {
+                return true;
+            }
+            wakeUpRequested.set(false);
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(
+                    String.format(
+                            "Interrupted while waiting for stream %s.", splitStream.streamName),
+                    ex);
+        } finally {
+            awaitedStream = null;
+        }
+    }
+
+    @Nullable
+    private BigQuerySplitRecords nextRecords(SplitStream splitStream) throws IOException {
+        if (!splitStream.responses.hasNext()) {
+            return null;
+        }
+        long responseOffset = splitStream.readOffset;
+        ReadRowsResponse response = nextResponse(splitStream);
+        return BigQuerySplitRecords.forRecords(
+                splitStream.split.splitId(),
+                decode(splitStream.decoder, splitStream.stream, response),
+                responseOffset);
+    }
+
+    /**
+     * Keeps the decode pool busy with the following responses of the stream, and returns the
+     * records of the oldest response submitted for decoding, so the rows of the split are emitted
+     * in the order of the stream.
+     */
+    @Nullable
+    private BigQuerySplitRecords nextDecodedRecords(SplitStream splitStream) throws IOException {
+        while (splitStream.pendingDecodes.size() < readOptions.getDecodeThreads()
+                && (splitStream.pendingDecodes.isEmpty()
+                        || !reservesOnReceive()
+                        || memoryBudget.hasAvailable())
+                && splitStream.responses.hasNext()) {
+            long responseOffset = splitStream.readOffset;
+            ReadRowsResponse response = nextResponse(splitStream);
+            // the schema is read in order, before any of the stream's rows gets decoded
+            splitStream.decoder.readSchema(response);
+            ReadRowsResponseDecoder decoder = splitStream.decoder;
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream = splitStream.stream;
+            splitStream.pendingDecodes.add(
+                    new PendingDecode(
+                            responseOffset,
+                            CompletableFuture.supplyAsync(
+                                    () -> {
+                                        try {
+                                            return decode(decoder, stream, response);
+                                        } catch (IOException ex) {
+                                            throw new UncheckedIOException(ex);
+                                        }
+                                    },
+                                    decodeExecutor())));
+        }
+        PendingDecode pendingDecode = splitStream.pendingDecodes.poll();
+        if (pendingDecode == null) {
+            return null;
+        }
+        return BigQuerySplitRecords.forRecords(
+                splitStream.split.splitId(), pendingDecode.await(), pendingDecode.responseOffset);
+    }
+
+    private ReadRowsResponse nextResponse(SplitStream splitStream) throws IOException {
+        ReadRowsResponse response = splitStream.responses.next();
+        // the stream made progress, the retries start over on its next failure
+        splitStream.failedAttempts = 0;
+        if (reservesOnReceive()) {
+            memoryBudget.forceReserve(response.getSerializedSize());
+        }
+        splitStream.readOffset += response.getRowCount();
+        if (response.hasStats()) {
+            streamsContext.updateProgress(
+                    splitStream.split.splitId(),
+                    response.getStats().getProgress().getAtResponseEnd());
+        }
+        return response;
+    }
+
+    private CloseableIterator<RowData> decode(
+            ReadRowsResponseDecoder decoder,
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream,
+            ReadRowsResponse response)
+            throws IOException {
+        boolean eagerly = readOptions.getDecodeThreads() > 0;
+        if (!readOptions.getZeroCopyReceive() && memoryBudget == null) {
+            return eagerly ? decoder.decodeEagerly(response) : decoder.decode(response);
+        }
+        // the response's buffers and reserved memory are released once its rows have been emitted
+        CloseableIterator<RowData> rows;
+        try {
+            rows = eagerly ? decoder.decodeEagerly(response) : decoder.decode(response);
+        } catch (IOException | RuntimeException ex) {
+            release(stream, response);
+            throw ex;
+        }
+        return CloseableIterator.adapterForIterator(
+                rows, () -> IOUtils.closeAll(rows, () -> release(stream, response)));
+    }
+
+    private void release(
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream,
+            ReadRowsResponse response) {
+        if (memoryBudget != null) {
+            memoryBudget.release(response.getSerializedSize());
+        }
+        if (readOptions.getZeroCopyReceive()) {
+            stream.release(response);
+        }
+    }
+
+    private ExecutorService decodeExecutor() {
+        if (decodeExecutor == null) {
+            decodeExecutor =
+                    Executors.newFixedThreadPool(
+                            readOptions.getDecodeThreads(),
+                            new ExecutorThreadFactory("bigquery-decode"));
+        }
+        return decodeExecutor;
+    }
+
+    private BigQuerySplitRecords finishAllSplits() {
+        Set<String> finishedSplits = new HashSet<>();
+        openStreams.forEach(
+                splitStream -> {
+                    finishedSplits.add(splitStream.split.splitId());
+                    closeStream(splitStream);
+                });
+        openStreams.clear();
+        preopenedStreams.forEach(
+                splitStream -> {
+                    finishedSplits.add(splitStream.split.splitId());
+                    closeStream(splitStream);
+                });
+        preopenedStreams.clear();
+        assignedSplits.forEach(split -> finishedSplits.add(split.splitId()));
+        assignedSplits.clear();
+        pausedSplits.clear();
+        if (finishedSplits.isEmpty()) {
+            return BigQuerySplitRecords.empty();
+        }
+        LOG.info("Reading cancelled, finishing splits {}.", finishedSplits);
+        return BigQuerySplitRecords.finishedSplits(finishedSplits);
+    }
+
+    private void closeStream(SplitStream splitStream) {
+        String splitId = splitStream.split.splitId();
+        streamsContext.removeProgress(splitId);
+        streamsContext.unregisterStream(splitId);
+        pausedSplits.remove(splitId);
+        splitStream.close();
+    }
+
+    @Override
+    public void handleSplitsChanges(SplitsChange<BigQuerySourceSplit> splitsChanges) {
+        if (!(splitsChanges instanceof SplitsAddition)) {
+            throw new UnsupportedOperationException(
+                    String.format(
+                            "The SplitChange type of %s is not supported.",
+                            splitsChanges.getClass()));
+        }
+        LOG.debug("Handling split change {}.", splitsChanges);
+        assignedSplits.addAll(splitsChanges.splits());
+    }
+
+    @Override
+    public void pauseOrResumeSplits(
+            Collection<BigQuerySourceSplit> splitsToPause,
+            Collection<BigQuerySourceSplit> splitsToResume) {
+        LOG.debug("Pausing splits {} and resuming splits {}.", splitsToPause, splitsToResume);
+        splitsToPause.forEach(split -> pausedSplits.add(split.splitId()));
+        splitsToResume.forEach(split -> pausedSplits.remove(split.splitId()));
+    }
+
+    @Override
+    public void wakeUp() {
+        synchronized (wakeUpLock) {
+            wakeUpRequested.set(true);
+            wakeUpLock.notifyAll();
+        }
+        PrefetchingServerStream<ReadRowsResponse> stream = awaitedStream;
+        if (stream != null) {
+            stream.wakeUp();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        openStreams.forEach(this::closeStream);
+        openStreams.clear();
+        preopenedStreams.forEach(this::closeStream);
+        preopenedStreams.clear();
+        if (readAheadExecutor != null) {
+            readAheadExecutor.shutdownNow();
+            readAheadExecutor = null;
+        }
+        if (decodeExecutor != null) {
+            decodeExecutor.shutdownNow();
+            // the decoding responses still use the Arrow allocator
+            if (!decodeExecutor.awaitTermination(
+                    DECODE_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Timed out waiting for the pending decodes to finish.");
+            }
+            decodeExecutor = null;
+        }
+        if (storageReadClient != null) {
+            storageReadClient.close();
+            storageReadClient = null;
+        }
+        if (allocator != null) {
+            try {
+                allocator.close();
+            } catch (IllegalStateException ex) {
+                // records may still be in flight when the reader gets closed on cancellation
+                LOG.warn("Closing the Arrow allocator with outstanding buffers.", ex);
+            }
+            allocator = null;
+        }
+    }
+
+    private SplitStream openSplit(BigQuerySourceSplit split) throws IOException {
+        LOG.info("Opening split {}.", split);
+        SplitStream splitStream =
+                new SplitStream(
+                        split,
+                        readRows(split.getStreamName(), split.getOffset()),
+                        createDecoder());
+        streamsContext.registerStream(split.splitId(), splitStream.stream);
+        return splitStream;
+    }
+
+    private BigQueryServices.BigQueryServerStream<ReadRowsResponse> readRows(
+            String streamName, long offset) throws IOException {
+        if (storageReadClient == null) {
+            storageReadClient =
+                    BigQueryServicesFactory.instance(readOptions.getBigQueryConnectOptions())
+                            .storageRead();
+        }
+        ReadRowsRequest request =
+                ReadRowsRequest.newBuilder().setReadStream(streamName).setOffset(offset).build();
+        return readAhead(
+                readOptions.getZeroCopyReceive()
+                        ? storageReadClient.readRowsZeroCopy(request)
+                        : storageReadClient.readRows(request));
+    }
+
+    private void handleStreamSplitRequests() throws IOException {
+        SplitStreamRequestEvent request;
+        while ((request = streamsContext.pollStreamSplitRequest()) != null) {
+            final String splitId = request.getSplitId();
+            final double fraction = request.getFraction();
+            BigQuerySourceSplit remainder =
+                    openStreams.stream()
+                            .filter(splitStream -> splitStream.split.splitId().equals(splitId))
+                            .findFirst()
+                            .map(splitStream -> splitStream(splitStream, fraction))
+                            .orElse(null);
+            streamsContext.completeStreamSplit(new SplitStreamResponseEvent(splitId, remainder));
+        }
+    }
+
+    /**
+     * Splits the stream currently read for the split. The original stream would still return the
+     * rows of the remainder, so the reading continues on the primary stream, at the same offset.
+     * In case the primary stream can not be read from that offset, because it was split before
+     * it, the split is discarded and the reading continues on the original stream.
+     */
+    @Nullable
+    private BigQuerySourceSplit splitStream(SplitStream splitStream, double fraction) {
+        try {
+            SplitReadStreamResponse response =
+                    storageReadClient.splitReadStream(
+                            SplitReadStreamRequest.newBuilder()
+                                    .setName(splitStream.streamName)
+                                    .setFraction(fraction)
+                                    .build());
+            if (!response.hasPrimaryStream() || !response.hasRemainderStream()) {
+                LOG.info("Stream {} could not be split.", splitStream.streamName);
+                return null;
+            }
+            String primaryStreamName = response.getPrimaryStream().getName();
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> primaryStream =
+                    readRows(primaryStreamName, splitStream.readOffset);
+            Iterator<ReadRowsResponse> primaryResponses = primaryStream.iterator();
+            try {
+                // forces the read of the primary stream to start at the current offset
+                primaryResponses.hasNext();
+            } catch (RuntimeException ex) {
+                primaryStream.cancel();
+                LOG.info(
+                        "Stream {} was split before its current offset {}, ignoring the split.",
+                        splitStream.streamName,
+                        splitStream.readOffset);
+                return null;
+            }
+            splitStream.switchTo(primaryStreamName, primaryStream, primaryResponses);
+            streamsContext.switchStream(splitStream.split.splitId(), primaryStreamName);
+            streamsContext.registerStream(splitStream.split.splitId(), primaryStream);
+            BigQuerySourceSplit remainder =
+                    new BigQuerySourceSplit(response.getRemainderStream().getName());
+            LOG.info(
+                    "Split stream of {} at offset {}, continuing on {} and handing out {}.",
+                    splitStream.split,
+                    splitStream.readOffset,
+                    primaryStreamName,
+                    remainder);
+            return remainder;
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn(
+                    String.format("Problems while splitting stream %s.", splitStream.streamName),
+                    ex);
+            return null;
+        }
+    }
+
+    private BigQueryServices.BigQueryServerStream<ReadRowsResponse> readAhead(
+            BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream) {
+        if (readOptions.getReadAheadQueueDepth() == 0) {
+            return stream;
+        }
+        if (readAheadExecutor == null) {
+            readAheadExecutor =
+                    ReadAheadExecutors.create(readOptions.getVirtualThreadReadAhead());
+        }
+        return new PrefetchingServerStream<>(
+                stream,
+                readAheadExecutor,
+                ReadRowsResponse::getSerializedSize,
+                readOptions.getReadAheadQueueDepth(),
+                readOptions.getReadAheadMaxBytes(),
+                memoryBudget);
+    }
+
+    private ReadRowsResponseDecoder createDecoder() {
+        switch (readOptions.getDataFormat()) {
+            case ARROW:
+                if (allocator == null) {
+                    allocator = new RootAllocator();
+                }
+                return new ArrowReadRowsResponseDecoder(rowType, allocator);
+            case AVRO:
+                // the payloads received without copy are released once their rows are emitted
+                return new AvroReadRowsResponseDecoder(
+                        rowType, readOptions.getObjectReuse(), readOptions.getZeroCopyReceive());
+            default:
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Unsupported data format %s for the read session.",
+                                readOptions.getDataFormat()));
+        }
+    }
+
+    /** The ReadRows stream opened for a split, with the decoder of its responses. */
+    static class SplitStream {
+        final BigQuerySourceSplit split;
+        final ReadRowsResponseDecoder decoder;
+        String streamName;
+        BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream;
+        Iterator<ReadRowsResponse> responses;
+        long readOffset;
+        final Queue<PendingDecode> pendingDecodes = new ArrayDeque<>();
+        // the retries of a failed stream, and when it should be reopened, -1 while not failed
+        int failedAttempts;
+        long reopenAtMillis = -1L;
+
+        SplitStream(
+                BigQuerySourceSplit split,
+                BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream,
+                ReadRowsResponseDecoder decoder) {
+            this.split = split;
+            this.decoder = decoder;
+            this.streamName = split.getStreamName();
+            this.stream = stream;
+            this.responses = stream.iterator();
+            this.readOffset = split.getOffset();
+        }
+
+        void switchTo(
+                String streamName,
+                BigQueryServices.BigQueryServerStream<ReadRowsResponse> stream,
+                Iterator<ReadRowsResponse> responses) {
+            this.stream.cancel();
+            this.streamName = streamName;
+            this.stream = stream;
+            this.responses = responses;
+        }
+
+        void close() {
+            stream.cancel();
+            pendingDecodes.forEach(PendingDecode::discard);
+            pendingDecodes.clear();
+            decoder.close();
+        }
+    }
+
+    /** A response submitted to the decode pool, with the stream offset of its first row. */
+    static class PendingDecode {
+        final long responseOffset;
+        final CompletableFuture<CloseableIterator<RowData>> rows;
+
+        PendingDecode(long responseOffset, CompletableFuture<CloseableIterator<RowData>> rows) {
+            this.responseOffset = responseOffset;
+            this.rows = rows;
+        }
+
+        CloseableIterator<RowData> await() throws IOException {
+            try {
+                return rows.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decoding a ReadRows response.", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException(
+                        "Problems while decoding a ReadRows response.", ex.getCause());
+            }
+        }
+
+        /** Releases the decoded rows once their decoding finishes, since they won't be emitted. */
+        void discard() {
+            rows.whenComplete(
+                    (decoded, error) -> {
+                        if (decoded != null) {
+                            try {
+                                decoded.close();
+                            } catch (Exception ex) {
+                                LOG.warn("Problems while discarding decoded rows.", ex);
+                            }
+                        }
+                    });
+        }
+    }
+}
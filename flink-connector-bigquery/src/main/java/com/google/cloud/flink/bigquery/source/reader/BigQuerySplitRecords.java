@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.util.CloseableIterator;
+
+import javax.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The records fetched from a single {@code ReadRowsResponse} of a split. The rows are lazily
+ * served from the decoded response, through a single {@link BigQueryRecord} which tracks their
+ * position in the stream, and the resources backing them are released once the records are
+ * recycled by the source reader.
+ */
+@Internal
+public class BigQuerySplitRecords implements RecordsWithSplitIds<BigQueryRecord> {
+
+    @Nullable private String splitId;
+    @Nullable private final CloseableIterator<RowData> records;
+    @Nullable private final BigQueryRecord record;
+    private final Set<String> finishedSplits;
+
+    private BigQuerySplitRecords(
+            @Nullable String splitId,
+            @Nullable CloseableIterator<RowData> records,
+            @Nullable BigQueryRecord record,
+            Set<String> finishedSplits) {
+        this.splitId = splitId;
+        this.records = records;
+        this.record = record;
+        this.finishedSplits = finishedSplits;
+    }
+
+    /**
+     * Creates the records for the provided split, backed by the iterator of a decoded response.
+     *
+     * @param splitId The split identifier.
+     * @param records The rows of the split.
+     * @param responseOffset The stream offset of the response's first row.
+     * @return A records instance for the split.
+     */
+    public static BigQuerySplitRecords forRecords(
+            String splitId, CloseableIterator<RowData> records, long responseOffset) {
+        return new BigQuerySplitRecords(
+                splitId, records, new BigQueryRecord(responseOffset), Collections.emptySet());
+    }
+
+    /**
+     * Creates an empty records instance, signaling the provided split as finished.
+     *
+     * @param splitId The identifier of the finished split.
+     * @return A records instance with no rows.
+     */
+    public static BigQuerySplitRecords finishedSplit(String splitId) {
+        return finishedSplits(Collections.singleton(splitId));
+    }
+
+    /**
+     * Creates an empty records instance, signaling the provided splits as finished.
+     *
+     * @param splitIds The identifiers of the finished splits.
+     * @return A records instance with no rows.
+     */
+    public static BigQuerySplitRecords finishedSplits(Set<String> splitIds) {
+        return new BigQuerySplitRecords(null, null, null, splitIds);
+    }
+
+    /**
+     * Creates an empty records instance.
+     *
+     * @return A records instance with no rows and no finished splits.
+     */
+    public static BigQuerySplitRecords empty() {
+        return new BigQuerySplitRecords(null, null, null, Collections.emptySet());
+    }
+
+    @Nullable
+    @Override
+    public String nextSplit() {
+        // move the split one (from current value to null)
+        final String nextSplit = this.splitId;
+        this.splitId = null;
+        return nextSplit;
+    }
+
+    @Nullable
+    @Override
+    public BigQueryRecord nextRecordFromSplit() {
+        if (records != null && records.hasNext()) {
+            return record.next(records.next());
+        }
+        return null;
+    }
+
+    @Override
+    public Set<String> finishedSplits() {
+        return finishedSplits;
+    }
+
+    @Override
+    public void recycle() {
+        if (records != null) {
+            try {
+                records.close();
+            } catch (Exception ex) {
+                throw new RuntimeException("Problems while releasing the split's records.", ex);
+            }
+        }
+    }
+}
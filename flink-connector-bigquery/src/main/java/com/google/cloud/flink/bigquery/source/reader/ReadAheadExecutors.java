@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors reading ahead the streams of the split readers, which run a long lived
+ * task per open stream. The multi-release jar of the connector replaces this class on JDK 21 or
+ * later with a version which can run every task on its own virtual thread.
+ */
+@Internal
+final class ReadAheadExecutors {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadAheadExecutors.class);
+
+    private ReadAheadExecutors() {}
+
+    /**
+     * Creates an executor running every read ahead task on its own thread.
+     *
+     * @param virtualThreads Whether the tasks should run on virtual threads, only available on JDK
+     *     21 or later.
+     * @return The executor of the read ahead tasks.
+     */
+    static ExecutorService create(boolean virtualThreads) {
+        if (virtualThreads) {
+            LOG.warn(
+                    "Virtual threads are not available in this JVM, the streams are read ahead by"
+                            + " platform threads.");
+        }
+        return Executors.newCachedThreadPool(new ExecutorThreadFactory("bigquery-read-ahead"));
+    }
+}
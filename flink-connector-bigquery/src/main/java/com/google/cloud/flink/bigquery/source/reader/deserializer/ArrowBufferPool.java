@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small pool of off-heap buffers, used to hold the bodies of the Arrow record batches received
+ * by a decoder. The pool keeps a reference to each of its buffers; a buffer is free again once
+ * every other reference to it, like the vectors sliced from a record batch body, has been
+ * released, so its memory can be reused for the following batches instead of allocating it again.
+ * The buffers of decompressed vectors are not taken from the pool, since the Arrow codecs allocate
+ * them on their own.
+ *
+ * <p>The pool is thread safe, so the responses of a stream can be decoded concurrently.
+ */
+@Internal
+class ArrowBufferPool implements AutoCloseable {
+
+    private final BufferAllocator allocator;
+    private final int maxPooledBuffers;
+    private final List<ArrowBuf> buffers;
+
+    ArrowBufferPool(BufferAllocator allocator, int maxPooledBuffers) {
+        Preconditions.checkArgument(
+                maxPooledBuffers > 0, "The max number of pooled buffers should be positive.");
+        this.allocator = allocator;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.buffers = new ArrayList<>(maxPooledBuffers);
+    }
+
+    /**
+     * Provides an empty buffer with, at least, the requested capacity. The buffer is retained for
+     * the caller, which should close it once done, retaining any slice of it it needs to keep.
+     *
+     * @param size The required capacity of the buffer.
+     * @return A buffer with its reader and writer indexes at zero.
+     */
+    synchronized ArrowBuf acquire(long size) {
+        for (int i = 0; i < buffers.size(); i++) {
+            ArrowBuf buffer = buffers.get(i);
+            if (!isFree(buffer)) {
+                continue;
+            }
+            if (buffer.capacity() < size) {
+                // replaces the buffer with a bigger one
+                buffer.close();
+                buffer = allocator.buffer(size);
+                buffers.set(i, buffer);
+            }
+            buffer.clear();
+            buffer.getReferenceManager().retain();
+            return buffer;
+        }
+        ArrowBuf buffer = allocator.buffer(size);
+        if (buffers.size() < maxPooledBuffers) {
+            buffers.add(buffer);
+        } else {
+            // all the pooled buffers are in use, the oldest one is handed over to its users
+            buffers.remove(0).close();
+            buffers.add(buffer);
+        }
+        buffer.getReferenceManager().retain();
+        return buffer;
+    }
+
+    synchronized int size() {
+        return buffers.size();
+    }
+
+    private static boolean isFree(ArrowBuf buffer) {
+        return buffer.getReferenceManager().getRefCount() == 1;
+    }
+
+    @Override
+    public synchronized void close() {
+        buffers.forEach(ArrowBuf::close);
+        buffers.clear();
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.ArrayData;
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.data.columnar.ColumnarArrayData;
+import org.apache.flink.table.data.columnar.ColumnarRowData;
+import org.apache.flink.table.data.columnar.vector.ArrayColumnVector;
+import org.apache.flink.table.data.columnar.vector.BooleanColumnVector;
+import org.apache.flink.table.data.columnar.vector.BytesColumnVector;
+import org.apache.flink.table.data.columnar.vector.ColumnVector;
+import org.apache.flink.table.data.columnar.vector.DecimalColumnVector;
+import org.apache.flink.table.data.columnar.vector.DoubleColumnVector;
+import org.apache.flink.table.data.columnar.vector.IntColumnVector;
+import org.apache.flink.table.data.columnar.vector.LongColumnVector;
+import org.apache.flink.table.data.columnar.vector.RowColumnVector;
+import org.apache.flink.table.data.columnar.vector.TimestampColumnVector;
+import org.apache.flink.table.data.columnar.vector.VectorizedColumnBatch;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Adapters exposing the Arrow vectors of a BigQuery read session as Flink {@link ColumnVector}s,
+ * so the rows of a record batch can be accessed through a {@link ColumnarRowData} without copying
+ * them one by one.
+ *
+ * <p>The Arrow types handled here are the ones produced by the Storage Read API for each of the
+ * BigQuery types, see {@link com.google.cloud.flink.bigquery.common.utils.SchemaTransform}.
+ */
+@Internal
+public class ArrowColumnVectors {
+
+    private ArrowColumnVectors() {}
+
+    /**
+     * Creates a batch wrapping the provided Arrow vectors, which should be in the same order as the
+     * fields of the row type.
+     *
+     * @param vectors The Arrow vectors of the record batch.
+     * @param rowType The Flink row type of the records.
+     * @return A columnar batch backed by the Arrow vectors.
+     */
+    public static VectorizedColumnBatch createBatch(
+            List<? extends ValueVector> vectors, RowType rowType) {
+        ColumnVector[] columns = new ColumnVector[vectors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumnVector(vectors.get(i), rowType.getTypeAt(i));
+        }
+        return new VectorizedColumnBatch(columns);
+    }
+
+    static ColumnVector createColumnVector(ValueVector vector, LogicalType fieldType) {
+        switch (fieldType.getTypeRoot()) {
+            case BOOLEAN:
+                return new ArrowBooleanColumnVector((BitVector) vector);
+            case BIGINT:
+                return new ArrowBigIntColumnVector((BigIntVector) vector);
+            case DOUBLE:
+                return new ArrowDoubleColumnVector((Float8Vector) vector);
+            case VARCHAR:
+                if (vector instanceof VarCharVector) {
+                    return new ArrowVarCharColumnVector((VarCharVector) vector);
+                }
+                // BIGNUMERIC values which do not fit into a Flink decimal
+                return new ArrowDecimalStringColumnVector(vector);
+            case VARBINARY:
+                return new ArrowVarBinaryColumnVector((VarBinaryVector) vector);
+            case DECIMAL:
+                return new ArrowDecimalColumnVector(vector);
+            case DATE:
+                return new ArrowDateColumnVector((DateDayVector) vector);
+            case TIME_WITHOUT_TIME_ZONE:
+                return new ArrowTimeColumnVector((TimeMicroVector) vector);
+            case TIMESTAMP_WITHOUT_TIME_ZONE:
+                return new ArrowTimestampColumnVector((TimeStampVector) vector);
+            case ARRAY:
+                ListVector listVector = (ListVector) vector;
+                return new ArrowArrayColumnVector(
+                        listVector,
+                        createColumnVector(
+                                listVector.getDataVector(),
+                                ((ArrayType) fieldType).getElementType()));
+            case ROW:
+                StructVector structVector = (StructVector) vector;
+                List<FieldVector> children = structVector.getChildrenFromFields();
+                return new ArrowRowColumnVector(
+                        structVector, createBatch(children, (RowType) fieldType));
+            default:
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Unsupported Flink type %s for Arrow vector %s.",
+                                fieldType, vector.getField()));
+        }
+    }
+
+    /** Base class for the adapters, delegating the null checks to the Arrow vector. */
+    abstract static class ArrowColumnVector<V extends ValueVector> implements ColumnVector {
+        protected final V vector;
+
+        ArrowColumnVector(V vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public boolean isNullAt(int i) {
+            return vector.isNull(i);
+        }
+    }
+
+    static class ArrowBooleanColumnVector extends ArrowColumnVector<BitVector>
+            implements BooleanColumnVector {
+
+        ArrowBooleanColumnVector(BitVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public boolean getBoolean(int i) {
+            return vector.get(i) != 0;
+        }
+    }
+
+    static class ArrowBigIntColumnVector extends ArrowColumnVector<BigIntVector>
+            implements LongColumnVector {
+
+        ArrowBigIntColumnVector(BigIntVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public long getLong(int i) {
+            return vector.get(i);
+        }
+    }
+
+    static class ArrowDoubleColumnVector extends ArrowColumnVector<Float8Vector>
+            implements DoubleColumnVector {
+
+        ArrowDoubleColumnVector(Float8Vector vector) {
+            super(vector);
+        }
+
+        @Override
+        public double getDouble(int i) {
+            return vector.get(i);
+        }
+    }
+
+    static class ArrowVarCharColumnVector extends ArrowColumnVector<VarCharVector>
+            implements BytesColumnVector {
+
+        ArrowVarCharColumnVector(VarCharVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public Bytes getBytes(int i) {
+            byte[] bytes = vector.get(i);
+            return new Bytes(bytes, 0, bytes.length);
+        }
+    }
+
+    static class ArrowVarBinaryColumnVector extends ArrowColumnVector<VarBinaryVector>
+            implements BytesColumnVector {
+
+        ArrowVarBinaryColumnVector(VarBinaryVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public Bytes getBytes(int i) {
+            byte[] bytes = vector.get(i);
+            return new Bytes(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Handles both the 128 bits (NUMERIC) and the 256 bits (BIGNUMERIC) decimal vectors. Values
+     * whose unscaled integer fits in a long, which are most of them, are read straight from the
+     * vector's buffer instead of going through a {@link BigDecimal}.
+     */
+    static class ArrowDecimalColumnVector extends ArrowColumnVector<BaseFixedWidthVector>
+            implements DecimalColumnVector {
+        private final int sourceScale;
+        private final int typeWidth;
+
+        ArrowDecimalColumnVector(ValueVector vector) {
+            super((BaseFixedWidthVector) vector);
+            this.sourceScale = ((ArrowType.Decimal) vector.getField().getType()).getScale();
+            this.typeWidth = this.vector.getTypeWidth();
+        }
+
+        @Override
+        public DecimalData getDecimal(int i, int precision, int scale) {
+            // the unscaled values are little endian, two's complement, integers
+            ArrowBuf data = vector.getDataBuffer();
+            long offset = (long) i * typeWidth;
+            long low = data.getLong(offset);
+            long signExtension = low >> 63;
+            for (int word = 8; word < typeWidth; word += 8) {
+                if (data.getLong(offset + word) != signExtension) {
+                    return DecimalData.fromBigDecimal(
+                            (BigDecimal) vector.getObject(i), precision, scale);
+                }
+            }
+            return ValueConversions.decimalFromUnscaledLong(low, sourceScale, precision, scale);
+        }
+    }
+
+    static class ArrowDecimalStringColumnVector extends ArrowColumnVector<ValueVector>
+            implements BytesColumnVector {
+
+        ArrowDecimalStringColumnVector(ValueVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public Bytes getBytes(int i) {
+            byte[] bytes =
+                    ((BigDecimal) vector.getObject(i))
+                            .toPlainString()
+                            .getBytes(StandardCharsets.UTF_8);
+            return new Bytes(bytes, 0, bytes.length);
+        }
+    }
+
+    static class ArrowDateColumnVector extends ArrowColumnVector<DateDayVector>
+            implements IntColumnVector {
+
+        ArrowDateColumnVector(DateDayVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public int getInt(int i) {
+            return vector.get(i);
+        }
+    }
+
+    /** Flink represents TIME values as milliseconds of the day. */
+    static class ArrowTimeColumnVector extends ArrowColumnVector<TimeMicroVector>
+            implements IntColumnVector {
+
+        ArrowTimeColumnVector(TimeMicroVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public int getInt(int i) {
+            return (int) (vector.get(i) / 1000L);
+        }
+    }
+
+    /** Handles both TIMESTAMP (with UTC time zone) and DATETIME, both in microseconds. */
+    static class ArrowTimestampColumnVector extends ArrowColumnVector<TimeStampVector>
+            implements TimestampColumnVector {
+
+        ArrowTimestampColumnVector(TimeStampVector vector) {
+            super(vector);
+        }
+
+        @Override
+        public TimestampData getTimestamp(int i, int precision) {
+            return ValueConversions.timestampFromMicros(vector.get(i));
+        }
+    }
+
+    static class ArrowArrayColumnVector extends ArrowColumnVector<ListVector>
+            implements ArrayColumnVector {
+        private final ColumnVector elementVector;
+
+        ArrowArrayColumnVector(ListVector vector, ColumnVector elementVector) {
+            super(vector);
+            this.elementVector = elementVector;
+        }
+
+        @Override
+        public ArrayData getArray(int i) {
+            int start = vector.getElementStartIndex(i);
+            int end = vector.getElementEndIndex(i);
+            return new ColumnarArrayData(elementVector, start, end - start);
+        }
+    }
+
+    static class ArrowRowColumnVector extends ArrowColumnVector<StructVector>
+            implements RowColumnVector {
+        private final VectorizedColumnBatch fieldsBatch;
+
+        ArrowRowColumnVector(StructVector vector, VectorizedColumnBatch fieldsBatch) {
+            super(vector);
+            this.fieldsBatch = fieldsBatch;
+        }
+
+        @Override
+        public ColumnarRowData getRow(int i) {
+            return new ColumnarRowData(fieldsBatch, i);
+        }
+    }
+}
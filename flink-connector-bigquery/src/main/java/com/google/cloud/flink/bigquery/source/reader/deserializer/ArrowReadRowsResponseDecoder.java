@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.columnar.ColumnarRowData;
+import org.apache.flink.table.data.columnar.vector.VectorizedColumnBatch;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.Preconditions;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.protobuf.ByteString;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageMetadataResult;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link ReadRowsResponseDecoder} for read sessions using the Arrow data format. Each response's
+ * record batch is loaded into its own set of Arrow vectors, which are then exposed to Flink as a
+ * {@link VectorizedColumnBatch}; the rows of the batch are served by a single {@link
+ * ColumnarRowData} instance pointing to the current row, so no per row copies are made.
+ *
+ * <p>The record batches may have their buffers compressed, with LZ4_FRAME or ZSTD, when requested
+ * to the read session. The body of each record batch is read into a pooled off-heap buffer, which
+ * gets reused for the following batches once the batch no longer references it; since compressed
+ * buffers are released as soon as they get decompressed into the vectors, a compressed stream
+ * keeps reusing the same body buffer. Only the received bodies are pooled though: the buffers the
+ * compressed vectors get decompressed into are allocated by Arrow's codecs from the decoder's
+ * allocator, for every batch, and released along with the batch's rows.
+ *
+ * <p>The record batches are always loaded eagerly, and several responses of the stream can be
+ * decoded at the same time once their schema has been read.
+ */
+@Internal
+public class ArrowReadRowsResponseDecoder implements ReadRowsResponseDecoder {
+
+    // enough to reuse the body buffers while the rows of the previous batch are being emitted
+    private static final int MAX_POOLED_BODY_BUFFERS = 2;
+
+    private final RowType rowType;
+    private final BufferAllocator allocator;
+    private final ArrowBufferPool bodyBuffers;
+    private volatile Schema arrowSchema;
+
+    public ArrowReadRowsResponseDecoder(RowType rowType, BufferAllocator allocator) {
+        this.rowType = rowType;
+        this.allocator = allocator;
+        this.bodyBuffers = new ArrowBufferPool(allocator, MAX_POOLED_BODY_BUFFERS);
+    }
+
+    @Override
+    public CloseableIterator<RowData> decode(ReadRowsResponse response) throws IOException {
+        readSchema(response);
+        return decodeEagerly(response);
+    }
+
+    @Override
+    public void readSchema(ReadRowsResponse response) throws IOException {
+        if (arrowSchema == null && response.hasArrowSchema()) {
+            arrowSchema =
+                    MessageSerializer.deserializeSchema(
+                            readChannel(response.getArrowSchema().getSerializedSchema()));
+        }
+    }
+
+    @Override
+    public CloseableIterator<RowData> decodeEagerly(ReadRowsResponse response)
+            throws IOException {
+        if (!response.hasArrowRecordBatch() || response.getRowCount() == 0) {
+            return CloseableIterator.empty();
+        }
+        Preconditions.checkState(
+                arrowSchema != null,
+                "The Arrow schema should have been received before the first record batch.");
+
+        VectorSchemaRoot root = VectorSchemaRoot.create(arrowSchema, allocator);
+        try (ArrowRecordBatch batch =
+                readRecordBatch(response.getArrowRecordBatch().getSerializedRecordBatch())) {
+            // the decompressed buffers are allocated from the root's allocator, not pooled
+            new VectorLoader(root, CommonsCompressionFactory.INSTANCE).load(batch);
+        } catch (IOException | RuntimeException ex) {
+            root.close();
+            throw ex;
+        }
+        return new ColumnarBatchIterator(root, rowType);
+    }
+
+    private ArrowRecordBatch readRecordBatch(ByteString serializedBatch) throws IOException {
+        ReadChannel channel = readChannel(serializedBatch);
+        MessageMetadataResult metadata = MessageSerializer.readMessage(channel);
+        if (metadata == null || metadata.getMessage().headerType() != MessageHeader.RecordBatch) {
+            throw new IOException("The serialized Arrow message is not a record batch.");
+        }
+        long bodyLength = metadata.getMessageBodyLength();
+        // the record batch retains the slices of the body it needs
+        try (ArrowBuf body = bodyBuffers.acquire(bodyLength)) {
+            if (channel.readFully(body, bodyLength) != bodyLength) {
+                throw new IOException("Unexpected end of the Arrow record batch body.");
+            }
+            return MessageSerializer.deserializeRecordBatch(
+                    (RecordBatch) metadata.getMessage().header(new RecordBatch()), body);
+        }
+    }
+
+    @Override
+    public void close() {
+        arrowSchema = null;
+        // buffers still referenced by batches being emitted get released along with them
+        bodyBuffers.close();
+    }
+
+    private static ReadChannel readChannel(ByteString serialized) {
+        return new ReadChannel(new ByteStringReadableChannel(serialized));
+    }
+
+    /** Iterates over the rows of a loaded record batch, releasing its vectors when closed. */
+    static class ColumnarBatchIterator implements CloseableIterator<RowData> {
+        private final VectorSchemaRoot root;
+        private final ColumnarRowData row;
+        private final int numRows;
+        private int nextRow;
+
+        ColumnarBatchIterator(VectorSchemaRoot root, RowType rowType) {
+            this.root = root;
+            this.numRows = root.getRowCount();
+            VectorizedColumnBatch batch =
+                    ArrowColumnVectors.createBatch(root.getFieldVectors(), rowType);
+            batch.setNumRows(numRows);
+            this.row = new ColumnarRowData(batch);
+            this.nextRow = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRow < numRows;
+        }
+
+        @Override
+        public RowData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            row.setRowId(nextRow++);
+            return row;
+        }
+
+        @Override
+        public void close() {
+            root.close();
+        }
+    }
+}
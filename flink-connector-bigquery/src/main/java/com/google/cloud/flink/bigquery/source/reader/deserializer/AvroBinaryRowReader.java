@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.GenericArrayData;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.DecimalType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the Avro binary encoding of a read session's rows straight into {@link GenericRowData}
+ * instances, without materializing intermediate Avro records. Strings are not copied out of the
+ * block they are read from, see {@link AvroBlockInput}.
+ *
+ * <p>The reader is specialized, once per stream, for the session's Avro schema and the produced
+ * row type: every field gets a reader for its exact Avro encoding and Flink type, so decoding a
+ * row is a fixed sequence of field reads with no per value type dispatch. Only the Avro schemas
+ * produced by the Storage Read API are supported, in which every value is either a plain type, a
+ * union of null and a plain type, an array or a record; {@link #create(Schema, RowType)} fails
+ * with an {@link UnsupportedOperationException} for any other schema.
+ */
+@Internal
+public class AvroBinaryRowReader {
+
+    /** Reads the binary encoding of a single value. */
+    @FunctionalInterface
+    interface FieldReader {
+        Object read(AvroBlockInput input) throws IOException;
+    }
+
+    private final FieldReader[] fieldReaders;
+
+    private AvroBinaryRowReader(FieldReader[] fieldReaders) {
+        this.fieldReaders = fieldReaders;
+    }
+
+    /**
+     * Creates a reader for rows encoded with the provided Avro record schema.
+     *
+     * @param avroSchema The Avro schema of the read session.
+     * @param rowType The Flink row type of the produced rows.
+     * @return A reader specialized for the schema.
+     */
+    public static AvroBinaryRowReader create(Schema avroSchema, RowType rowType) {
+        return new AvroBinaryRowReader(createFieldReaders(avroSchema, rowType));
+    }
+
+    /**
+     * Reads the next row from the block.
+     *
+     * @param input The input of a block, positioned at the start of a row.
+     * @return The decoded row.
+     * @throws IOException In case of problems reading the row's encoding.
+     */
+    RowData read(AvroBlockInput input) throws IOException {
+        return readRow(fieldReaders, input, new GenericRowData(fieldReaders.length));
+    }
+
+    /**
+     * Reads the next row from the block into an existing row, overwriting all its fields.
+     *
+     * @param input The input of a block, positioned at the start of a row.
+     * @param reuse The row to read into, with as many fields as the row type.
+     * @return The provided row.
+     * @throws IOException In case of problems reading the row's encoding.
+     */
+    RowData read(AvroBlockInput input, GenericRowData reuse) throws IOException {
+        return readRow(fieldReaders, input, reuse);
+    }
+
+    private static GenericRowData readRow(
+            FieldReader[] fieldReaders, AvroBlockInput input, GenericRowData row)
+            throws IOException {
+        for (int i = 0; i < fieldReaders.length; i++) {
+            row.setField(i, fieldReaders[i].read(input));
+        }
+        return row;
+    }
+
+    private static FieldReader[] createFieldReaders(Schema avroSchema, RowType rowType) {
+        if (avroSchema.getType() != Schema.Type.RECORD
+                || avroSchema.getFields().size() != rowType.getFieldCount()) {
+            throw unsupported(avroSchema, rowType);
+        }
+        FieldReader[] fieldReaders = new FieldReader[rowType.getFieldCount()];
+        for (int i = 0; i < fieldReaders.length; i++) {
+            fieldReaders[i] =
+                    createReader(avroSchema.getFields().get(i).schema(), rowType.getTypeAt(i));
+        }
+        return fieldReaders;
+    }
+
+    private static FieldReader createReader(Schema schema, LogicalType type) {
+        if (schema.getType() == Schema.Type.UNION) {
+            return createNullableReader(schema, type);
+        }
+        switch (schema.getType()) {
+            case BOOLEAN:
+                checkType(schema, type, LogicalTypeRoot.BOOLEAN);
+                return AvroBlockInput::readBoolean;
+            case DOUBLE:
+                checkType(schema, type, LogicalTypeRoot.DOUBLE);
+                return AvroBlockInput::readDouble;
+            case INT:
+                checkType(schema, type, LogicalTypeRoot.DATE);
+                return AvroBlockInput::readInt;
+            case LONG:
+                return createLongReader(schema, type);
+            case STRING:
+                return createStringReader(schema, type);
+            case BYTES:
+                return createBytesReader(schema, type);
+            case ARRAY:
+                return createArrayReader(schema, type);
+            case RECORD:
+                checkType(schema, type, LogicalTypeRoot.ROW);
+                FieldReader[] fieldReaders = createFieldReaders(schema, (RowType) type);
+                return input ->
+                        readRow(fieldReaders, input, new GenericRowData(fieldReaders.length));
+            default:
+                throw unsupported(schema, type);
+        }
+    }
+
+    private static FieldReader createNullableReader(Schema schema, LogicalType type) {
+        List<Schema> branches = schema.getTypes();
+        if (branches.size() != 2) {
+            throw unsupported(schema, type);
+        }
+        int nullIndex;
+        if (branches.get(0).getType() == Schema.Type.NULL) {
+            nullIndex = 0;
+        } else if (branches.get(1).getType() == Schema.Type.NULL) {
+            nullIndex = 1;
+        } else {
+            throw unsupported(schema, type);
+        }
+        FieldReader valueReader = createReader(branches.get(1 - nullIndex), type);
+        return input -> input.readInt() == nullIndex ? null : valueReader.read(input);
+    }
+
+    private static FieldReader createLongReader(Schema schema, LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case BIGINT:
+                return AvroBlockInput::readLong;
+            case TIMESTAMP_WITHOUT_TIME_ZONE:
+                return input -> ValueConversions.timestampFromMicros(input.readLong());
+            case TIME_WITHOUT_TIME_ZONE:
+                return input -> (int) (input.readLong() / 1000L);
+            default:
+                throw unsupported(schema, type);
+        }
+    }
+
+    private static FieldReader createStringReader(Schema schema, LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case VARCHAR:
+                return AvroBlockInput::readString;
+            case TIMESTAMP_WITHOUT_TIME_ZONE:
+                // DATETIME values are encoded as ISO formatted strings
+                return input -> {
+                    int offset = input.readSpan();
+                    return ValueConversions.parseDateTime(
+                            input.block(), offset, input.spanLength());
+                };
+            case DATE:
+                return input -> {
+                    int offset = input.readSpan();
+                    return ValueConversions.parseDate(input.block(), offset, input.spanLength());
+                };
+            case TIME_WITHOUT_TIME_ZONE:
+                return input -> {
+                    int offset = input.readSpan();
+                    return ValueConversions.parseTime(input.block(), offset, input.spanLength());
+                };
+            default:
+                throw unsupported(schema, type);
+        }
+    }
+
+    private static FieldReader createBytesReader(Schema schema, LogicalType type) {
+        if (!(schema.getLogicalType() instanceof LogicalTypes.Decimal)) {
+            checkType(schema, type, LogicalTypeRoot.VARBINARY);
+            return AvroBlockInput::readBytes;
+        }
+        int avroScale = ((LogicalTypes.Decimal) schema.getLogicalType()).getScale();
+        switch (type.getTypeRoot()) {
+            case DECIMAL:
+                int precision = ((DecimalType) type).getPrecision();
+                int scale = ((DecimalType) type).getScale();
+                return input -> {
+                    int offset = input.readSpan();
+                    return ValueConversions.decimalFromUnscaledBytes(
+                            input.block(),
+                            offset,
+                            input.spanLength(),
+                            avroScale,
+                            precision,
+                            scale);
+                };
+            case VARCHAR:
+                // BIGNUMERIC values which do not fit into a Flink decimal
+                return input ->
+                        StringData.fromString(
+                                new BigDecimal(new BigInteger(input.readBytes()), avroScale)
+                                        .toPlainString());
+            default:
+                throw unsupported(schema, type);
+        }
+    }
+
+    private static FieldReader createArrayReader(Schema schema, LogicalType type) {
+        checkType(schema, type, LogicalTypeRoot.ARRAY);
+        FieldReader elementReader =
+                createReader(schema.getElementType(), ((ArrayType) type).getElementType());
+        return input -> {
+            List<Object> elements = new ArrayList<>();
+            for (long count = input.readItemCount(); count > 0; count = input.readItemCount()) {
+                for (long i = 0; i < count; i++) {
+                    elements.add(elementReader.read(input));
+                }
+            }
+            return new GenericArrayData(elements.toArray());
+        };
+    }
+
+    private static void checkType(Schema schema, LogicalType type, LogicalTypeRoot expected) {
+        if (type.getTypeRoot() != expected) {
+            throw unsupported(schema, type);
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(Schema schema, LogicalType type) {
+        return new UnsupportedOperationException(
+                String.format(
+                        "Unsupported Avro schema %s for the Flink type %s.", schema, type));
+    }
+}
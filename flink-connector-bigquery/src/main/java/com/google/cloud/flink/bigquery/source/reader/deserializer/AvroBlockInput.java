@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.binary.BinaryStringData;
+
+import com.google.protobuf.ByteOutput;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import javax.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the values of a block of Avro binary encoded rows, as sent in a ReadRows response.
+ *
+ * <p>Unlike the Avro decoders, which copy every string and bytes value out of the block, the
+ * input exposes where each value lies in the block, so strings are materialized as {@link
+ * BinaryStringData} instances pointing at their UTF-8 bytes in the block, without any copy or
+ * transcoding, and the other textual and decimal values are converted straight from the block.
+ * As a consequence, the block stays reachable while any string read from it does.
+ *
+ * <p>The block is read in place from the buffer holding the response's payload, either a heap
+ * array or off-heap memory. Only a payload split across several buffers is copied into a single
+ * array first. For the responses parsed straight from the transport buffers, which get released
+ * and reused once the rows of the response have been emitted, the strings are copied out of the
+ * block instead, since the emitted rows may outlive the response, when held by downstream
+ * operators.
+ */
+@Internal
+final class AvroBlockInput {
+
+    private final MemorySegment segment;
+    private final MemorySegment[] segments;
+    private final boolean offHeap;
+    private final boolean copyStrings;
+    private final int limit;
+    // the array of on-heap blocks, or a scratch copy of the last span read from off-heap blocks
+    private byte[] spanBytes;
+    private int position;
+    private int spanLength;
+
+    AvroBlockInput(byte[] block) {
+        this(MemorySegmentFactory.wrap(block), 0, block.length, false);
+    }
+
+    private AvroBlockInput(MemorySegment segment, int offset, int length, boolean copyStrings) {
+        this.segment = segment;
+        this.segments = new MemorySegment[] {segment};
+        this.offHeap = segment.isOffHeap();
+        this.copyStrings = copyStrings;
+        this.spanBytes = offHeap ? new byte[0] : segment.getArray();
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Creates the input of the block held by a response's payload, without copying it unless the
+     * payload is split across several buffers.
+     *
+     * @param block The serialized rows of a response.
+     * @param releasable Whether the buffers of the payload get released once the rows of the
+     *     response have been emitted, in which case the strings are copied out of them.
+     * @return The input reading the block.
+     */
+    static AvroBlockInput of(ByteString block, boolean releasable) {
+        BufferLocator locator = new BufferLocator(releasable);
+        try {
+            // hands over the buffers backing the payload, instead of a copy of their content
+            UnsafeByteOperations.unsafeWriteTo(block, locator);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!locator.copied && locator.buffers == 1 && locator.input != null) {
+            return locator.input;
+        }
+        return new AvroBlockInput(block.toByteArray());
+    }
+
+    /**
+     * The array holding the value located by the last {@link #readSpan()}: the block itself when
+     * on-heap, or a copy of the value otherwise.
+     */
+    byte[] block() {
+        return spanBytes;
+    }
+
+    boolean isEnd() {
+        return position == limit;
+    }
+
+    boolean readBoolean() throws IOException {
+        ensureAvailable(1);
+        return segment.get(position++) != 0;
+    }
+
+    int readInt() throws IOException {
+        return (int) readLong();
+    }
+
+    /** Reads a variable length, zig-zag encoded, long. */
+    long readLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            ensureAvailable(1);
+            int b = segment.get(position++) & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("Invalid long encoding in the Avro block.");
+    }
+
+    double readDouble() throws IOException {
+        ensureAvailable(8);
+        long bits = segment.getLongLittleEndian(position);
+        position += 8;
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Reads the number of items of the next block of an array, which is zero once the array has
+     * no more items.
+     */
+    long readItemCount() throws IOException {
+        long count = readLong();
+        if (count < 0) {
+            // a negative count is followed by the size in bytes of the items, not needed here
+            readLong();
+            return -count;
+        }
+        return count;
+    }
+
+    /**
+     * Reads the length of a string or bytes value and skips the value, which remains available in
+     * the {@link #block()}.
+     *
+     * @return The offset of the value in the {@link #block()}; its length is available from
+     *     {@link #spanLength()}.
+     */
+    int readSpan() throws IOException {
+        int offset = skipSpan();
+        if (!offHeap) {
+            return offset;
+        }
+        if (spanBytes.length < spanLength) {
+            spanBytes = new byte[spanLength];
+        }
+        segment.get(offset, spanBytes, 0, spanLength);
+        return 0;
+    }
+
+    int spanLength() {
+        return spanLength;
+    }
+
+    StringData readString() throws IOException {
+        int offset = skipSpan();
+        if (copyStrings) {
+            byte[] bytes = new byte[spanLength];
+            segment.get(offset, bytes, 0, spanLength);
+            return BinaryStringData.fromBytes(bytes);
+        }
+        return BinaryStringData.fromAddress(segments, offset, spanLength);
+    }
+
+    byte[] readBytes() throws IOException {
+        int offset = skipSpan();
+        byte[] bytes = new byte[spanLength];
+        segment.get(offset, bytes, 0, spanLength);
+        return bytes;
+    }
+
+    /** Skips a string or bytes value, returning its offset in the segment. */
+    private int skipSpan() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            throw new IOException("Invalid negative length in the Avro block.");
+        }
+        ensureAvailable(length);
+        spanLength = length;
+        int offset = position;
+        position += length;
+        return offset;
+    }
+
+    private void ensureAvailable(int length) throws EOFException {
+        if (length > limit - position) {
+            throw new EOFException("Unexpected end of the Avro block.");
+        }
+    }
+
+    /** Locates the buffers a {@link ByteString} is made of, without copying them. */
+    private static class BufferLocator extends ByteOutput {
+        private final boolean releasable;
+        private int buffers;
+        private boolean copied;
+        @Nullable private AvroBlockInput input;
+
+        BufferLocator(boolean releasable) {
+            this.releasable = releasable;
+        }
+
+        @Override
+        public void write(byte value) {
+            copied = true;
+        }
+
+        @Override
+        public void write(byte[] value, int offset, int length) {
+            copied = true;
+        }
+
+        @Override
+        public void writeLazy(byte[] value, int offset, int length) {
+            buffers++;
+            input =
+                    new AvroBlockInput(
+                            MemorySegmentFactory.wrap(value), offset, length, releasable);
+        }
+
+        @Override
+        public void write(ByteBuffer value) {
+            copied = true;
+        }
+
+        @Override
+        public void writeLazy(ByteBuffer value) {
+            buffers++;
+            if (value.hasArray()) {
+                input =
+                        new AvroBlockInput(
+                                MemorySegmentFactory.wrap(value.array()),
+                                value.arrayOffset() + value.position(),
+                                value.remaining(),
+                                releasable);
+            } else if (value.isDirect()) {
+                input =
+                        new AvroBlockInput(
+                                MemorySegmentFactory.wrapOffHeapMemory(value),
+                                value.position(),
+                                value.remaining(),
+                                releasable);
+            } else {
+                // a read-only heap buffer, whose array is not accessible
+                input = null;
+            }
+        }
+    }
+}
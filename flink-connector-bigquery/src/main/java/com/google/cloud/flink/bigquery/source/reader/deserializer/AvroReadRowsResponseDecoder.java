@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.Preconditions;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.protobuf.ByteString;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link ReadRowsResponseDecoder} for read sessions using the Avro data format.
+ *
+ * <p>The session's Avro schema is parsed only once, from the first response of the stream, and a
+ * single {@link BinaryDecoder}, {@link DatumReader} and {@link GenericRecord} instance are reused
+ * to decode the serialized rows of every response read from the split. The rows of a response are
+ * decoded lazily, while being iterated, which is safe since the responses of a split are consumed
+ * in order and one at a time. Both decoders read the serialized rows straight from the
+ * response's payload, without copying it into a new byte array.
+ *
+ * <p>When decoded eagerly, the rows of a response are all decoded by the calling thread with their
+ * own {@link BinaryDecoder} and {@link GenericRecord}, so several responses can be decoded at the
+ * same time; the {@link GenericDatumReader} is safe to share between threads.
+ *
+ * <p>Whenever the session's schema is supported, the rows are read by an {@link
+ * AvroBinaryRowReader} specialized for it, which reads the rows' binary encoding straight into
+ * their Flink representation, skipping the intermediate {@link GenericRecord} and its generic
+ * conversion. The specialized reader keeps no state, so it is shared by the lazy and eager paths.
+ * The block is read in place, see {@link AvroBlockInput}, and its strings point at their bytes in
+ * the payload, which is why the rows hold on to the payload until they are not referenced anymore,
+ * unless the payloads are released once their rows have been emitted, like the responses parsed
+ * straight from the transport buffers, in which case the strings are copied.
+ * With object reuse enabled, the rows decoded lazily by the specialized reader are all read into
+ * a single {@link GenericRowData} instance, so no row is allocated per emitted record.
+ */
+@Internal
+public class AvroReadRowsResponseDecoder implements ReadRowsResponseDecoder {
+    private static final Logger LOG = LoggerFactory.getLogger(AvroReadRowsResponseDecoder.class);
+
+    private final RowType rowType;
+    private final AvroToRowDataConverters.AvroToRowDataConverter rowConverter;
+    @Nullable private final GenericRowData reusedRow;
+    private final boolean releasablePayloads;
+
+    private volatile DatumReader<GenericRecord> datumReader;
+    private volatile AvroBinaryRowReader rowReader;
+    private BinaryDecoder binaryDecoder;
+    private GenericRecord reusedRecord;
+
+    public AvroReadRowsResponseDecoder(RowType rowType) {
+        this(rowType, false);
+    }
+
+    public AvroReadRowsResponseDecoder(RowType rowType, boolean objectReuse) {
+        this(rowType, objectReuse, false);
+    }
+
+    public AvroReadRowsResponseDecoder(
+            RowType rowType, boolean objectReuse, boolean releasablePayloads) {
+        this.rowType = rowType;
+        this.releasablePayloads = releasablePayloads;
+        this.rowConverter = AvroToRowDataConverters.createRowConverter(rowType);
+        this.reusedRow = objectReuse ? new GenericRowData(rowType.getFieldCount()) : null;
+    }
+
+    @Override
+    public CloseableIterator<RowData> decode(ReadRowsResponse response) throws IOException {
+        readSchema(response);
+        if (!hasRows(response)) {
+            return CloseableIterator.empty();
+        }
+        return new AvroRowsIterator(
+                response.getAvroRows().getSerializedBinaryRows(),
+                response.getRowCount());
+    }
+
+    @Override
+    public CloseableIterator<RowData> decodeEagerly(ReadRowsResponse response)
+            throws IOException {
+        if (!hasRows(response)) {
+            return CloseableIterator.empty();
+        }
+        ByteString serializedRows = response.getAvroRows().getSerializedBinaryRows();
+        List<RowData> rows = new ArrayList<>((int) response.getRowCount());
+        AvroBinaryRowReader reader = rowReader;
+        if (reader != null) {
+            AvroBlockInput input = AvroBlockInput.of(serializedRows, releasablePayloads);
+            for (long i = 0; i < response.getRowCount(); i++) {
+                rows.add(reader.read(input));
+            }
+            return CloseableIterator.adapterForIterator(rows.iterator());
+        }
+        BinaryDecoder decoder =
+                DecoderFactory.get().binaryDecoder(serializedRows.newInput(), null);
+        GenericRecord record = null;
+        for (long i = 0; i < response.getRowCount(); i++) {
+            record = datumReader.read(record, decoder);
+            // the converted rows do not reference the reused record
+            rows.add((RowData) rowConverter.convert(record));
+        }
+        return CloseableIterator.adapterForIterator(rows.iterator());
+    }
+
+    @Override
+    public void readSchema(ReadRowsResponse response) {
+        if (datumReader == null && response.hasAvroSchema()) {
+            Schema avroSchema = new Schema.Parser().parse(response.getAvroSchema().getSchema());
+            // decimals (NUMERIC and BIGNUMERIC) are read as BigDecimal, with their proper scale
+            GenericData genericData = new GenericData();
+            genericData.addLogicalTypeConversion(new Conversions.DecimalConversion());
+            try {
+                rowReader = AvroBinaryRowReader.create(avroSchema, rowType);
+            } catch (UnsupportedOperationException ex) {
+                LOG.info(
+                        "The Avro rows will be decoded through generic records, {}",
+                        ex.getMessage());
+            }
+            datumReader = new GenericDatumReader<>(avroSchema, avroSchema, genericData);
+        }
+    }
+
+    private boolean hasRows(ReadRowsResponse response) {
+        if (!response.hasAvroRows() || response.getRowCount() == 0) {
+            return false;
+        }
+        Preconditions.checkState(
+                datumReader != null,
+                "The Avro schema should have been received before the first rows.");
+        return true;
+    }
+
+    @Override
+    public void close() {
+        datumReader = null;
+        rowReader = null;
+        binaryDecoder = null;
+        reusedRecord = null;
+    }
+
+    /** Decodes, one at a time, the rows serialized in a response's block. */
+    class AvroRowsIterator implements CloseableIterator<RowData> {
+        private final ByteString serializedRows;
+        private final long rowCount;
+        private long decodedRows;
+        private AvroBlockInput blockInput;
+
+        AvroRowsIterator(ByteString serializedRows, long rowCount) {
+            this.serializedRows = serializedRows;
+            this.rowCount = rowCount;
+            this.decodedRows = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return decodedRows < rowCount;
+        }
+
+        @Override
+        public RowData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (decodedRows == 0 && rowReader != null) {
+                // the strings are read without copying them out of the payload
+                blockInput = AvroBlockInput.of(serializedRows, releasablePayloads);
+            } else if (decodedRows == 0) {
+                // the shared decoder is only pointed to this block once the rows of the previous
+                // one have been consumed
+                binaryDecoder =
+                        DecoderFactory.get()
+                                .binaryDecoder(serializedRows.newInput(), binaryDecoder);
+            }
+            try {
+                decodedRows++;
+                if (blockInput != null && reusedRow != null) {
+                    return rowReader.read(blockInput, reusedRow);
+                } else if (blockInput != null) {
+                    return rowReader.read(blockInput);
+                }
+                reusedRecord = datumReader.read(reusedRecord, binaryDecoder);
+                return (RowData) rowConverter.convert(reusedRecord);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Problems while decoding an Avro row.", ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            // nothing to release, the decoding structures are owned by the decoder
+        }
+    }
+}
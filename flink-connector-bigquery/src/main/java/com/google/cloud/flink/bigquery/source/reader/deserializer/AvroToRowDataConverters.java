@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.GenericArrayData;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.DecimalType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.util.Utf8;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tool class used to convert the Avro records produced by a BigQuery read session into Flink's
+ * internal {@link org.apache.flink.table.data.RowData}.
+ *
+ * <p>The conversions follow the Avro types used by the Storage Read API: TIMESTAMP values are
+ * micros since epoch, TIME values micros of the day, DATE values days since epoch and DATETIME
+ * values ISO formatted strings. The decimal types are expected to be already converted into {@link
+ * BigDecimal}s by the datum reader.
+ */
+@Internal
+public class AvroToRowDataConverters {
+
+    private AvroToRowDataConverters() {}
+
+    /**
+     * Runtime converter that converts Avro data structures into objects of Flink Table & SQL
+     * internal data structures.
+     */
+    @FunctionalInterface
+    public interface AvroToRowDataConverter extends Serializable {
+        Object convert(Object object);
+    }
+
+    /**
+     * Creates a converter for Avro records with the same structure as the provided row type.
+     *
+     * @param rowType The Flink row type.
+     * @return A converter producing {@link GenericRowData} instances.
+     */
+    public static AvroToRowDataConverter createRowConverter(RowType rowType) {
+        final AvroToRowDataConverter[] fieldConverters =
+                rowType.getFields().stream()
+                        .map(RowType.RowField::getType)
+                        .map(AvroToRowDataConverters::createNullableConverter)
+                        .toArray(AvroToRowDataConverter[]::new);
+        final int arity = rowType.getFieldCount();
+
+        return avroObject -> {
+            IndexedRecord record = (IndexedRecord) avroObject;
+            GenericRowData row = new GenericRowData(arity);
+            for (int i = 0; i < arity; ++i) {
+                row.setField(i, fieldConverters[i].convert(record.get(i)));
+            }
+            return row;
+        };
+    }
+
+    private static AvroToRowDataConverter createNullableConverter(LogicalType type) {
+        final AvroToRowDataConverter converter = createConverter(type);
+        return avroObject -> {
+            if (avroObject == null) {
+                return null;
+            }
+            return converter.convert(avroObject);
+        };
+    }
+
+    private static AvroToRowDataConverter createConverter(LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case BOOLEAN:
+            case BIGINT:
+            case DOUBLE:
+                return avroObject -> avroObject;
+            case DATE:
+                return AvroToRowDataConverters::convertToDate;
+            case TIME_WITHOUT_TIME_ZONE:
+                return AvroToRowDataConverters::convertToTime;
+            case TIMESTAMP_WITHOUT_TIME_ZONE:
+                return AvroToRowDataConverters::convertToTimestamp;
+            case VARCHAR:
+                return AvroToRowDataConverters::convertToString;
+            case VARBINARY:
+                return AvroToRowDataConverters::convertToBytes;
+            case DECIMAL:
+                return createDecimalConverter((DecimalType) type);
+            case ARRAY:
+                return createArrayConverter((ArrayType) type);
+            case ROW:
+                return createRowConverter((RowType) type);
+            default:
+                throw new UnsupportedOperationException("Unsupported type: " + type);
+        }
+    }
+
+    private static AvroToRowDataConverter createDecimalConverter(DecimalType decimalType) {
+        final int precision = decimalType.getPrecision();
+        final int scale = decimalType.getScale();
+        return avroObject -> DecimalData.fromBigDecimal((BigDecimal) avroObject, precision, scale);
+    }
+
+    private static AvroToRowDataConverter createArrayConverter(ArrayType arrayType) {
+        final AvroToRowDataConverter elementConverter =
+                createNullableConverter(arrayType.getElementType());
+
+        return avroObject -> {
+            final List<?> list = (List<?>) avroObject;
+            final int length = list.size();
+            final Object[] array = new Object[length];
+            for (int i = 0; i < length; ++i) {
+                array[i] = elementConverter.convert(list.get(i));
+            }
+            return new GenericArrayData(array);
+        };
+    }
+
+    private static int convertToDate(Object object) {
+        if (object instanceof Integer) {
+            return (Integer) object;
+        }
+        byte[] utf8 = toUtf8(object);
+        return ValueConversions.parseDate(utf8, 0, utf8Length(object, utf8));
+    }
+
+    private static int convertToTime(Object object) {
+        if (object instanceof Long) {
+            return (int) ((Long) object / 1000L);
+        }
+        byte[] utf8 = toUtf8(object);
+        return ValueConversions.parseTime(utf8, 0, utf8Length(object, utf8));
+    }
+
+    private static TimestampData convertToTimestamp(Object object) {
+        if (object instanceof Long) {
+            return ValueConversions.timestampFromMicros((Long) object);
+        }
+        byte[] utf8 = toUtf8(object);
+        return ValueConversions.parseDateTime(utf8, 0, utf8Length(object, utf8));
+    }
+
+    /** The strings read by the datum reader are {@link Utf8}s, whose bytes can be parsed as is. */
+    private static byte[] toUtf8(Object object) {
+        if (object instanceof Utf8) {
+            return ((Utf8) object).getBytes();
+        }
+        return object.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(Object object, byte[] utf8) {
+        return object instanceof Utf8 ? ((Utf8) object).getByteLength() : utf8.length;
+    }
+
+    private static StringData convertToString(Object object) {
+        if (object instanceof BigDecimal) {
+            // BIGNUMERIC values which do not fit into a Flink decimal
+            return StringData.fromString(((BigDecimal) object).toPlainString());
+        }
+        if (object instanceof Utf8) {
+            // skips transcoding, the bytes are copied since the datum reader reuses them
+            Utf8 utf8 = (Utf8) object;
+            return StringData.fromBytes(Arrays.copyOf(utf8.getBytes(), utf8.getByteLength()));
+        }
+        return StringData.fromString(object.toString());
+    }
+
+    private static byte[] convertToBytes(Object object) {
+        ByteBuffer byteBuffer = ((ByteBuffer) object).duplicate();
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+
+/**
+ * A {@link ReadableByteChannel} over the content of a {@link ByteString}. The content is read
+ * through read only views of the buffers backing the byte string, so a byte string aliasing the
+ * transport's buffers is copied once, straight into the destination buffers.
+ */
+@Internal
+class ByteStringReadableChannel implements ReadableByteChannel {
+
+    private final Iterator<ByteBuffer> buffers;
+    private ByteBuffer current;
+    private boolean open;
+
+    ByteStringReadableChannel(ByteString bytes) {
+        this.buffers = bytes.asReadOnlyByteBufferList().iterator();
+        this.current = ByteBuffer.allocate(0);
+        this.open = true;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        int read = 0;
+        while (dst.hasRemaining()) {
+            if (!current.hasRemaining()) {
+                if (!buffers.hasNext()) {
+                    break;
+                }
+                current = buffers.next();
+                continue;
+            }
+            int length = Math.min(dst.remaining(), current.remaining());
+            ByteBuffer chunk = current.duplicate();
+            chunk.limit(chunk.position() + length);
+            dst.put(chunk);
+            current.position(current.position() + length);
+            read += length;
+        }
+        return read == 0 && dst.hasRemaining() ? -1 : read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
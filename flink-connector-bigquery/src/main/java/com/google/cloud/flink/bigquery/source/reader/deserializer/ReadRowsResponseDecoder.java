@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.util.CloseableIterator;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+
+import java.io.IOException;
+
+/**
+ * Decodes the serialized rows contained in the {@link ReadRowsResponse}s of a single read stream
+ * into Flink's internal {@link RowData} representation.
+ *
+ * <p>A decoder instance is bound to one split, so it can cache the read session schema and any
+ * other per stream structure. Implementations do not need to be thread-safe, with the exception of
+ * {@link #decodeEagerly(ReadRowsResponse)}: once the responses have been handed, in order, to
+ * {@link #readSchema(ReadRowsResponse)}, their rows can be decoded eagerly by several threads at
+ * the same time.
+ */
+@Internal
+public interface ReadRowsResponseDecoder extends AutoCloseable {
+
+    /**
+     * Decodes the rows carried by the provided response. The returned iterator may hold resources,
+     * like off-heap buffers, which are released once it gets closed; the rows it returns are only
+     * valid until that moment and may be reused between calls.
+     *
+     * @param response The response read from the stream.
+     * @return An iterator over the rows of the response.
+     * @throws IOException In case of problems decoding the response's payload.
+     */
+    CloseableIterator<RowData> decode(ReadRowsResponse response) throws IOException;
+
+    /**
+     * Reads the read session schema from the provided response, when it carries it. Should be
+     * called, in order, for every response decoded through {@link
+     * #decodeEagerly(ReadRowsResponse)}.
+     *
+     * @param response The response read from the stream.
+     * @throws IOException In case of problems parsing the schema.
+     */
+    void readSchema(ReadRowsResponse response) throws IOException;
+
+    /**
+     * Decodes all the rows carried by the provided response up front, so all the decoding work is
+     * done by the calling thread. This method may be called concurrently for different responses
+     * of the stream, and the rows returned by the iterator are not reused between calls.
+     *
+     * @param response The response read from the stream, already passed to {@link
+     *     #readSchema(ReadRowsResponse)}.
+     * @return An iterator over the decoded rows of the response.
+     * @throws IOException In case of problems decoding the response's payload.
+     */
+    CloseableIterator<RowData> decodeEagerly(ReadRowsResponse response) throws IOException;
+
+    /** Releases the resources held by the decoder. */
+    @Override
+    void close();
+}
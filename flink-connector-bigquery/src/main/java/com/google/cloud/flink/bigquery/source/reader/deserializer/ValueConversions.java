@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.TimestampData;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Conversions of the BigQuery NUMERIC, BIGNUMERIC, TIMESTAMP, DATE, TIME and DATETIME values, as
+ * encoded by the Storage Read API, into their Flink internal representation.
+ *
+ * <p>These are the hot spots of decoding most tables, so the conversions avoid the intermediate
+ * objects of the obvious ones: decimals whose unscaled value fits in a long are rescaled with long
+ * arithmetic, and stored in compact form whenever the precision allows it, timestamps are built
+ * straight from their microseconds, and the ISO formatted dates and times are parsed straight from
+ * their UTF-8 bytes. Values which do not fit those fast paths are converted the obvious way.
+ */
+@Internal
+final class ValueConversions {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private ValueConversions() {}
+
+    /**
+     * Converts a microseconds since epoch value (TIMESTAMP, or DATETIME when read as Arrow).
+     *
+     * @param micros The microseconds since epoch.
+     * @return The timestamp.
+     */
+    static TimestampData timestampFromMicros(long micros) {
+        return TimestampData.fromEpochMillis(
+                Math.floorDiv(micros, 1000L), (int) Math.floorMod(micros, 1000L) * 1000);
+    }
+
+    /**
+     * Converts a decimal given as its big endian, two's complement, unscaled value (the Avro
+     * encoding of NUMERIC and BIGNUMERIC values).
+     *
+     * @param unscaled The bytes holding the unscaled value.
+     * @param offset The offset of the unscaled value.
+     * @param length The length of the unscaled value.
+     * @param sourceScale The scale of the unscaled value.
+     * @param precision The precision of the Flink decimal.
+     * @param scale The scale of the Flink decimal.
+     * @return The decimal, or null if it does not fit the precision.
+     */
+    static DecimalData decimalFromUnscaledBytes(
+            byte[] unscaled, int offset, int length, int sourceScale, int precision, int scale) {
+        if (length > 0 && length <= 8) {
+            long value = unscaled[offset];
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (unscaled[i] & 0xFF);
+            }
+            return decimalFromUnscaledLong(value, sourceScale, precision, scale);
+        }
+        BigInteger unscaledValue =
+                new BigInteger(Arrays.copyOfRange(unscaled, offset, offset + length));
+        return DecimalData.fromBigDecimal(
+                new BigDecimal(unscaledValue, sourceScale), precision, scale);
+    }
+
+    /**
+     * Converts a decimal given as its unscaled value.
+     *
+     * @param unscaled The unscaled value.
+     * @param sourceScale The scale of the unscaled value.
+     * @param precision The precision of the Flink decimal.
+     * @param scale The scale of the Flink decimal.
+     * @return The decimal, or null if it does not fit the precision.
+     */
+    static DecimalData decimalFromUnscaledLong(
+            long unscaled, int sourceScale, int precision, int scale) {
+        long value = unscaled;
+        if (scale < sourceScale) {
+            if (sourceScale - scale >= POWERS_OF_TEN.length) {
+                return rescaleSlowly(unscaled, sourceScale, precision, scale);
+            }
+            long divisor = POWERS_OF_TEN[sourceScale - scale];
+            value = unscaled / divisor;
+            // rounds half up, like the decimals of Flink
+            if (Math.abs(unscaled % divisor) >= divisor / 2) {
+                value += Long.signum(unscaled);
+            }
+        } else if (scale > sourceScale) {
+            if (scale - sourceScale >= POWERS_OF_TEN.length) {
+                return rescaleSlowly(unscaled, sourceScale, precision, scale);
+            }
+            try {
+                value = Math.multiplyExact(unscaled, POWERS_OF_TEN[scale - sourceScale]);
+            } catch (ArithmeticException ex) {
+                return rescaleSlowly(unscaled, sourceScale, precision, scale);
+            }
+        }
+        if (DecimalData.isCompact(precision)) {
+            long bound = POWERS_OF_TEN[precision];
+            return value > -bound && value < bound
+                    ? DecimalData.fromUnscaledLong(value, precision, scale)
+                    : null;
+        }
+        // a BigDecimal backed by a long is still way cheaper than one built from bytes
+        return DecimalData.fromBigDecimal(BigDecimal.valueOf(value, scale), precision, scale);
+    }
+
+    private static DecimalData rescaleSlowly(
+            long unscaled, int sourceScale, int precision, int scale) {
+        return DecimalData.fromBigDecimal(
+                BigDecimal.valueOf(unscaled, sourceScale).setScale(scale, RoundingMode.HALF_UP),
+                precision,
+                scale);
+    }
+
+    /**
+     * Parses a DATE value formatted as {@code yyyy-MM-dd}.
+     *
+     * @param utf8 The bytes holding the UTF-8 encoded value.
+     * @param offset The offset of the value.
+     * @param length The length of the value.
+     * @return The days since epoch.
+     */
+    static int parseDate(byte[] utf8, int offset, int length) {
+        if (length == 10) {
+            long epochDay = parseEpochDay(utf8, offset);
+            if (epochDay != Long.MIN_VALUE) {
+                return (int) epochDay;
+            }
+        }
+        return (int) LocalDate.parse(toString(utf8, offset, length)).toEpochDay();
+    }
+
+    /**
+     * Parses a TIME value formatted as {@code HH:mm:ss[.SSSSSS]}.
+     *
+     * @param utf8 The bytes holding the UTF-8 encoded value.
+     * @param offset The offset of the value.
+     * @param length The length of the value.
+     * @return The milliseconds of the day, as Flink represents TIME values.
+     */
+    static int parseTime(byte[] utf8, int offset, int length) {
+        long nanoOfDay = parseNanoOfDay(utf8, offset, offset + length);
+        if (nanoOfDay != Long.MIN_VALUE) {
+            return (int) (nanoOfDay / 1_000_000L);
+        }
+        return (int)
+                (LocalTime.parse(toString(utf8, offset, length)).toNanoOfDay() / 1_000_000L);
+    }
+
+    /**
+     * Parses a DATETIME value formatted as {@code yyyy-MM-dd'T'HH:mm:ss[.SSSSSS]}, also accepting
+     * a space as the separator of the date and the time.
+     *
+     * @param utf8 The bytes holding the UTF-8 encoded value.
+     * @param offset The offset of the value.
+     * @param length The length of the value.
+     * @return The timestamp.
+     */
+    static TimestampData parseDateTime(byte[] utf8, int offset, int length) {
+        if (length >= 19 && (utf8[offset + 10] == 'T' || utf8[offset + 10] == ' ')) {
+            long epochDay = parseEpochDay(utf8, offset);
+            long nanoOfDay = parseNanoOfDay(utf8, offset + 11, offset + length);
+            if (epochDay != Long.MIN_VALUE && nanoOfDay != Long.MIN_VALUE) {
+                return TimestampData.fromEpochMillis(
+                        epochDay * MILLIS_PER_DAY + nanoOfDay / 1_000_000L,
+                        (int) (nanoOfDay % 1_000_000L));
+            }
+        }
+        return TimestampData.fromLocalDateTime(
+                LocalDateTime.parse(toString(utf8, offset, length).replace(' ', 'T')));
+    }
+
+    /** Parses the {@code yyyy-MM-dd} date at the offset, or returns MIN_VALUE if invalid. */
+    private static long parseEpochDay(byte[] utf8, int offset) {
+        int year = parseDigits(utf8, offset, 4);
+        int month = parseDigits(utf8, offset + 5, 2);
+        int day = parseDigits(utf8, offset + 8, 2);
+        if (year < 0
+                || month < 1
+                || month > 12
+                || day < 1
+                || utf8[offset + 4] != '-'
+                || utf8[offset + 7] != '-'
+                || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        // days from the civil date, counting eras of 400 years from March the 1st of year 0
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /** Parses a {@code HH:mm:ss[.S+]} time, or returns MIN_VALUE if invalid. */
+    private static long parseNanoOfDay(byte[] utf8, int offset, int end) {
+        if (end - offset < 8 || utf8[offset + 2] != ':' || utf8[offset + 5] != ':') {
+            return Long.MIN_VALUE;
+        }
+        int hour = parseDigits(utf8, offset, 2);
+        int minute = parseDigits(utf8, offset + 3, 2);
+        int second = parseDigits(utf8, offset + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        long nanos = 0;
+        int fractionStart = offset + 8;
+        if (fractionStart < end) {
+            int fractionDigits = end - fractionStart - 1;
+            if (utf8[fractionStart] != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                return Long.MIN_VALUE;
+            }
+            int fraction = parseDigits(utf8, fractionStart + 1, fractionDigits);
+            if (fraction < 0) {
+                return Long.MIN_VALUE;
+            }
+            nanos = fraction * POWERS_OF_TEN[9 - fractionDigits];
+        }
+        return ((hour * 60L + minute) * 60L + second) * 1_000_000_000L + nanos;
+    }
+
+    /** Parses a non negative number of, at most, nine digits, or returns -1 if not only digits. */
+    private static int parseDigits(byte[] utf8, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = utf8[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static String toString(byte[] utf8, int offset, int length) {
+        return new String(utf8, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -27,14 +27,14 @@ import java.util.Objects;
 public class BigQuerySourceSplit implements SourceSplit, Serializable {
 
     private final String streamName;
-    private final Long offset;
+    private final long offset;
 
     public BigQuerySourceSplit(String streamName) {
         this.streamName = streamName;
         this.offset = 0L;
     }
 
-    public BigQuerySourceSplit(String streamName, Long offset) {
+    public BigQuerySourceSplit(String streamName, long offset) {
         this.streamName = streamName;
         this.offset = offset;
     }
@@ -48,7 +48,7 @@ public class BigQuerySourceSplit implements SourceSplit, Serializable {
         return streamName;
     }
 
-    public Long getOffset() {
+    public long getOffset() {
         return offset;
     }
 
@@ -72,7 +72,7 @@ public class BigQuerySourceSplit implements SourceSplit, Serializable {
         if (!Objects.equals(this.streamName, other.streamName)) {
             return false;
         }
-        return Objects.equals(this.offset, other.offset);
+        return this.offset == other.offset;
     }
 
     @Override
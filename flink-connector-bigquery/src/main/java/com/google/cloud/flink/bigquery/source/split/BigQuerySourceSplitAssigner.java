@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.split;
+
+import org.apache.flink.annotation.Internal;
+
+import com.google.cloud.bigquery.storage.v1.ArrowSerializationOptions;
+import com.google.cloud.bigquery.storage.v1.ArrowSerializationOptions.CompressionCodec;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.flink.bigquery.common.config.BigQueryConnectOptions;
+import com.google.cloud.flink.bigquery.services.BigQueryServices;
+import com.google.cloud.flink.bigquery.services.BigQueryServicesFactory;
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.enumerator.BigQuerySourceEnumState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * A simple split assigner based on the BigQuery {@link ReadSession} streams. The read session is
+ * created once, when the assigner is opened for the first time, and its streams are handed out in
+ * order.
+ */
+@Internal
+public class BigQuerySourceSplitAssigner {
+    private static final Logger LOG = LoggerFactory.getLogger(BigQuerySourceSplitAssigner.class);
+
+    private final BigQueryReadOptions readOptions;
+
+    private final ArrayDeque<String> remainingTableStreams;
+    private final List<String> alreadyProcessedTableStreams;
+    private final ArrayDeque<BigQuerySourceSplit> remainingSourceSplits;
+    private final Map<String, BigQuerySourceSplit> assignedSourceSplits;
+    private boolean initialized;
+
+    public BigQuerySourceSplitAssigner(
+            BigQueryReadOptions readOptions, BigQuerySourceEnumState sourceEnumState) {
+        this.readOptions = readOptions;
+        this.remainingTableStreams =
+                new ArrayDeque<>(sourceEnumState.getRemaniningTableStreams());
+        this.alreadyProcessedTableStreams =
+                new ArrayList<>(sourceEnumState.getCompletedTableStreams());
+        this.remainingSourceSplits =
+                new ArrayDeque<>(sourceEnumState.getRemainingSourceSplits());
+        this.assignedSourceSplits = new HashMap<>(sourceEnumState.getAssignedSourceSplits());
+        this.initialized = sourceEnumState.isInitialized();
+    }
+
+    /** Creates the read session and discovers its streams, if not already done. */
+    public void open() {
+        LOG.info("BigQuery source split assigner is opening.");
+        if (!initialized) {
+            discoverReadStreams();
+            initialized = true;
+        }
+    }
+
+    /**
+     * Adds back the splits that were assigned to a reader which failed before completing them.
+     *
+     * @param splits The splits to be reassigned.
+     */
+    public void addSplitsBack(List<BigQuerySourceSplit> splits) {
+        for (BigQuerySourceSplit split : splits) {
+            remainingSourceSplits.add(split);
+            // we should remove the add-backed splits from the assigned list,
+            // because they are failed
+            assignedSourceSplits.remove(split.splitId());
+        }
+    }
+
+    /**
+     * Returns the current state of the assigner, to be included in the enumerator's checkpoint.
+     *
+     * @param checkpointId The checkpoint identifier.
+     * @return The enumerator state.
+     */
+    public BigQuerySourceEnumState snapshotState(long checkpointId) {
+        return new BigQuerySourceEnumState(
+                new ArrayList<>(remainingTableStreams),
+                new ArrayList<>(alreadyProcessedTableStreams),
+                new ArrayList<>(remainingSourceSplits),
+                new HashMap<>(assignedSourceSplits),
+                initialized);
+    }
+
+    /** Closes the assigner. */
+    public void close() {
+        // so far not much to be done here
+        LOG.info("BigQuery source split assigner is closed.");
+    }
+
+    /**
+     * Returns the next split to be assigned, if there is one available.
+     *
+     * @return An optional split.
+     */
+    public Optional<BigQuerySourceSplit> getNext() {
+        if (!remainingSourceSplits.isEmpty()) {
+            // return remaining splits firstly
+            BigQuerySourceSplit split = remainingSourceSplits.poll();
+            assignedSourceSplits.put(split.splitId(), split);
+            return Optional.of(split);
+        } else {
+            // it's turn for next collection
+            String nextStream = remainingTableStreams.poll();
+            if (nextStream != null) {
+                BigQuerySourceSplit split = new BigQuerySourceSplit(nextStream);
+                assignedSourceSplits.put(split.splitId(), split);
+                alreadyProcessedTableStreams.add(nextStream);
+                return Optional.of(split);
+            } else {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Checks if there are no more splits to be handed out.
+     *
+     * @return True if all the read session streams have been assigned, false otherwise.
+     */
+    public boolean noMoreSplits() {
+        return initialized && remainingTableStreams.isEmpty() && remainingSourceSplits.isEmpty();
+    }
+
+    CreateReadSessionRequest createReadSessionRequest() {
+        BigQueryConnectOptions connectOptions = readOptions.getBigQueryConnectOptions();
+        ReadSession.TableReadOptions.Builder tableReadOptions =
+                ReadSession.TableReadOptions.newBuilder()
+                        .addAllSelectedFields(readOptions.getColumnNames());
+        if (readOptions.getRowRestriction() != null) {
+            tableReadOptions.setRowRestriction(
+                    readOptions.getRowRestriction().toRowRestriction());
+        }
+        if (readOptions.getArrowCompressionCodec() != CompressionCodec.COMPRESSION_UNSPECIFIED) {
+            tableReadOptions.setArrowSerializationOptions(
+                    ArrowSerializationOptions.newBuilder()
+                            .setBufferCompression(readOptions.getArrowCompressionCodec()));
+        }
+        return CreateReadSessionRequest.newBuilder()
+                .setParent(String.format("projects/%s", connectOptions.getProjectId()))
+                .setReadSession(
+                        ReadSession.newBuilder()
+                                .setTable(
+                                        String.format(
+                                                "projects/%s/datasets/%s/tables/%s",
+                                                connectOptions.getProjectId(),
+                                                connectOptions.getDataset(),
+                                                connectOptions.getTable()))
+                                .setDataFormat(readOptions.getDataFormat())
+                                .setReadOptions(tableReadOptions))
+                .setMaxStreamCount(readOptions.getMaxStreamCount())
+                .build();
+    }
+
+    private void discoverReadStreams() {
+        try (BigQueryServices.StorageReadClient client =
+                BigQueryServicesFactory.instance(readOptions.getBigQueryConnectOptions())
+                        .storageRead()) {
+            ReadSession session = client.createReadSession(createReadSessionRequest());
+            List<String> streams =
+                    session.getStreamsList().stream()
+                            .map(ReadStream::getName)
+                            .collect(Collectors.toList());
+            LOG.info(
+                    "BigQuery read session {} created with {} streams for table {}.",
+                    session.getName(),
+                    streams.size(),
+                    readOptions.getBigQueryConnectOptions());
+            remainingTableStreams.addAll(streams);
+        } catch (Exception ex) {
+            throw new RuntimeException(
+                    String.format(
+                            "Problems creating the BigQuery Storage Read session for %s.",
+                            readOptions.getBigQueryConnectOptions()),
+                    ex);
+        }
+    }
+}
@@ -20,33 +20,62 @@ import org.apache.flink.annotation.Internal;
 
 import java.util.Objects;
 
-/** BigQuery source split state for {@link BigQuerySourceSplit}. */
+/**
+ * BigQuery source split state for {@link BigQuerySourceSplit}. The read offset is tracked as the
+ * offset of the ReadRows response being emitted plus the number of its rows already emitted, using
+ * primitive counters only, so the state can be updated for every row without allocations.
+ */
 @Internal
 public class BigQuerySourceSplitState {
     private final BigQuerySourceSplit split;
-    private Long offset;
+    private long responseOffset;
+    private long emittedRowsInResponse;
 
     public BigQuerySourceSplitState(BigQuerySourceSplit split) {
         this.split = split;
-        offset = split.getOffset();
+        this.responseOffset = split.getOffset();
+        this.emittedRowsInResponse = 0;
     }
 
     public BigQuerySourceSplit toBigQuerySourceSplit() {
-        return new BigQuerySourceSplit(split.getStreamName(), offset);
+        return new BigQuerySourceSplit(split.getStreamName(), getOffset());
+    }
+
+    /**
+     * Sets the position of the last emitted row.
+     *
+     * @param responseOffset The stream offset of the first row of the row's response.
+     * @param emittedRowsInResponse The number of rows already emitted from that response.
+     */
+    public void updateOffset(long responseOffset, long emittedRowsInResponse) {
+        this.responseOffset = responseOffset;
+        this.emittedRowsInResponse = emittedRowsInResponse;
     }
 
-    public void updateOffset() {
-        offset++;
+    /**
+     * The offset of the next row to be read from the split's stream.
+     *
+     * @return The read offset.
+     */
+    public long getOffset() {
+        return responseOffset + emittedRowsInResponse;
     }
 
     @Override
     public String toString() {
-        return "BigQuerySourceSplitState{" + "split=" + split + ", offset=" + offset + '}';
+        return "BigQuerySourceSplitState{"
+                + "split="
+                + split
+                + ", responseOffset="
+                + responseOffset
+                + ", emittedRowsInResponse="
+                + emittedRowsInResponse
+                + '}';
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.split, this.offset);
+        return Objects.hash(this.split, getOffset());
     }
 
     @Override
@@ -64,6 +93,6 @@ public class BigQuerySourceSplitState {
         if (!Objects.equals(this.split, other.split)) {
             return false;
         }
-        return Objects.equals(this.offset, other.offset);
+        return getOffset() == other.getOffset();
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors reading ahead the streams of the split readers, which run a long lived
+ * task per open stream. This version, for JDK 21 or later, can run every task on its own virtual
+ * thread: the tasks spend most of their time blocked on the streams' responses, which only waits
+ * on locks that unmount the virtual threads, so many concurrent streams do not cost as many
+ * platform threads.
+ */
+@Internal
+final class ReadAheadExecutors {
+
+    private ReadAheadExecutors() {}
+
+    /**
+     * Creates an executor running every read ahead task on its own thread.
+     *
+     * @param virtualThreads Whether the tasks should run on virtual threads.
+     * @return The executor of the read ahead tasks.
+     */
+    static ExecutorService create(boolean virtualThreads) {
+        if (!virtualThreads) {
+            return Executors.newCachedThreadPool(new ExecutorThreadFactory("bigquery-read-ahead"));
+        }
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("bigquery-read-ahead-", 0).factory());
+    }
+}
@@ -16,6 +16,13 @@
 
 package com.google.cloud.flink.bigquery.common.utils;
 
+import org.apache.flink.table.types.logical.ArrayType;
+import org.apache.flink.table.types.logical.BigIntType;
+import org.apache.flink.table.types.logical.DecimalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.TimestampType;
+import org.apache.flink.table.types.logical.VarCharType;
+
 import org.apache.flink.shaded.guava30.com.google.common.collect.ImmutableList;
 import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
 
@@ -30,6 +37,7 @@ import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /** */
 public class SchemaTransformTest {
@@ -228,4 +236,143 @@ public class SchemaTransformTest {
 
         Assertions.assertThat(transformed).isEqualTo(expected);
     }
+
+    @Test
+    public void testConvertBigQuerySchemaToFlinkRowType() {
+        RowType rowType = SchemaTransform.toFlinkRowType(fields);
+
+        Assertions.assertThat(rowType.getFieldNames())
+                .containsExactlyElementsOf(
+                        fields.stream()
+                                .map(TableFieldSchema::getName)
+                                .collect(Collectors.toList()));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("number")))
+                .isEqualTo(new BigIntType(false));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("species")))
+                .isEqualTo(new VarCharType(VarCharType.MAX_LENGTH));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("birthday")))
+                .isEqualTo(new TimestampType(6));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("birthdayMoney")))
+                .isEqualTo(new DecimalType(38, 9));
+        // the default BIGNUMERIC precision does not fit in a Flink decimal
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("lotteryWinnings")))
+                .isEqualTo(new VarCharType(VarCharType.MAX_LENGTH));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("geoPositions")))
+                .isEqualTo(new VarCharType(VarCharType.MAX_LENGTH));
+
+        RowType scionType =
+                new RowType(
+                        Lists.newArrayList(
+                                new RowType.RowField(
+                                        "species", new VarCharType(VarCharType.MAX_LENGTH))));
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("scion")))
+                .isEqualTo(scionType);
+        Assertions.assertThat(rowType.getTypeAt(rowType.getFieldIndex("associates")))
+                .isEqualTo(new ArrayType(false, scionType.copy(false)));
+    }
+
+    @Test
+    public void testParameterizedDecimalsWithoutScale() {
+        List<TableFieldSchema> decimalFields =
+                Lists.newArrayList(
+                        new TableFieldSchema()
+                                .setName("price")
+                                .setType("NUMERIC")
+                                .setMode("REQUIRED")
+                                .setPrecision(5L),
+                        new TableFieldSchema()
+                                .setName("total")
+                                .setType("BIGNUMERIC")
+                                .setMode("REQUIRED")
+                                .setPrecision(20L),
+                        new TableFieldSchema()
+                                .setName("rate")
+                                .setType("NUMERIC")
+                                .setMode("REQUIRED")
+                                .setPrecision(10L)
+                                .setScale(2L));
+
+        // only the precision is set, so the scale is 0, as in BigQuery
+        RowType rowType = SchemaTransform.toFlinkRowType(decimalFields);
+        Assertions.assertThat(rowType.getTypeAt(0)).isEqualTo(new DecimalType(false, 5, 0));
+        Assertions.assertThat(rowType.getTypeAt(1)).isEqualTo(new DecimalType(false, 20, 0));
+        Assertions.assertThat(rowType.getTypeAt(2)).isEqualTo(new DecimalType(false, 10, 2));
+
+        Schema avroSchema = SchemaTransform.toGenericAvroSchema("testSchema", decimalFields);
+        Assertions.assertThat(avroSchema.getField("price").schema())
+                .isEqualTo(
+                        LogicalTypes.decimal(5, 0).addToSchema(Schema.create(Schema.Type.BYTES)));
+        Assertions.assertThat(avroSchema.getField("total").schema())
+                .isEqualTo(
+                        LogicalTypes.decimal(20, 0).addToSchema(Schema.create(Schema.Type.BYTES)));
+    }
+
+    @Test
+    public void testPruneBigQuerySchemaFields() {
+        List<TableFieldSchema> pruned =
+                SchemaTransform.pruneFields(fields, Lists.newArrayList("SPECIES", "number"));
+
+        // the table schema order is kept, regardless of the selection order
+        Assertions.assertThat(pruned)
+                .extracting(TableFieldSchema::getName)
+                .containsExactly("number", "species");
+        Assertions.assertThat(SchemaTransform.pruneFields(fields, Lists.newArrayList()))
+                .isEqualTo(fields);
+        Assertions.assertThatThrownBy(
+                        () -> SchemaTransform.pruneFields(fields, Lists.newArrayList("missing")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testPruneNestedBigQuerySchemaFields() {
+        List<TableFieldSchema> userFields =
+                Lists.newArrayList(
+                        new TableFieldSchema().setName("id").setType("INTEGER"),
+                        new TableFieldSchema().setName("name").setType("STRING"));
+        List<TableFieldSchema> nestedFields =
+                Lists.newArrayList(
+                        new TableFieldSchema()
+                                .setName("payload")
+                                .setType("RECORD")
+                                .setFields(
+                                        Lists.newArrayList(
+                                                new TableFieldSchema()
+                                                        .setName("user")
+                                                        .setType("RECORD")
+                                                        .setFields(userFields),
+                                                new TableFieldSchema()
+                                                        .setName("body")
+                                                        .setType("STRING"))),
+                        new TableFieldSchema()
+                                .setName("associates")
+                                .setType("RECORD")
+                                .setMode("REPEATED")
+                                .setFields(userFields));
+
+        List<TableFieldSchema> pruned =
+                SchemaTransform.pruneFields(
+                        nestedFields, Lists.newArrayList("associates.name", "payload.user.id"));
+
+        Assertions.assertThat(pruned)
+                .extracting(TableFieldSchema::getName)
+                .containsExactly("payload", "associates");
+        TableFieldSchema user = pruned.get(0).getFields().get(0);
+        Assertions.assertThat(pruned.get(0).getFields()).hasSize(1);
+        Assertions.assertThat(user.getName()).isEqualTo("user");
+        Assertions.assertThat(user.getFields())
+                .extracting(TableFieldSchema::getName)
+                .containsExactly("id");
+        Assertions.assertThat(pruned.get(1).getMode()).isEqualTo("REPEATED");
+        Assertions.assertThat(pruned.get(1).getFields())
+                .extracting(TableFieldSchema::getName)
+                .containsExactly("name");
+        // the original schema is left untouched
+        Assertions.assertThat(nestedFields.get(0).getFields()).hasSize(2);
+
+        Assertions.assertThatThrownBy(
+                        () ->
+                                SchemaTransform.pruneFields(
+                                        nestedFields, Lists.newArrayList("payload.body.text")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/** */
+public class FlowControlledServerStreamTest {
+
+    /** A call whose responses are pushed by the test, recording the requested responses. */
+    static class FakeCall extends ServerStreamingCallable<String, String>
+            implements StreamController {
+        ResponseObserver<String> observer;
+        int requested;
+        boolean cancelled;
+
+        @Override
+        public void call(
+                String request, ResponseObserver<String> observer, ApiCallContext context) {
+            this.observer = observer;
+            observer.onStart(this);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {}
+
+        @Override
+        public void request(int count) {
+            requested += count;
+        }
+    }
+
+    @Test
+    public void testResponsesAreRequestedOnceConsumed() {
+        FakeCall call = new FakeCall();
+        FlowControlledServerStream<String> stream =
+                FlowControlledServerStream.call(call, "request", response -> {});
+        Iterator<String> responses = stream.iterator();
+        Assertions.assertThat(call.requested).isEqualTo(1);
+
+        call.observer.onResponse("a");
+        // the next response is not requested until the received one is consumed
+        Assertions.assertThat(responses.hasNext()).isTrue();
+        Assertions.assertThat(call.requested).isEqualTo(1);
+
+        Assertions.assertThat(responses.next()).isEqualTo("a");
+        Assertions.assertThat(call.requested).isEqualTo(2);
+
+        call.observer.onResponse("b");
+        call.observer.onComplete();
+        Assertions.assertThat(responses.next()).isEqualTo("b");
+        Assertions.assertThat(responses.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testErrorsAreRethrownAfterReceivedResponses() {
+        FakeCall call = new FakeCall();
+        Iterator<String> responses =
+                FlowControlledServerStream.call(call, "request", response -> {}).iterator();
+
+        call.observer.onResponse("a");
+        call.observer.onError(new IllegalStateException("stream broken"));
+
+        Assertions.assertThat(responses.next()).isEqualTo("a");
+        Assertions.assertThatThrownBy(responses::hasNext)
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testCancelReleasesReceivedResponses() {
+        FakeCall call = new FakeCall();
+        List<String> released = new ArrayList<>();
+        FlowControlledServerStream<String> stream =
+                FlowControlledServerStream.call(call, "request", released::add);
+        Iterator<String> responses = stream.iterator();
+
+        call.observer.onResponse("a");
+        stream.cancel();
+        // responses arriving after the cancellation are released too
+        call.observer.onResponse("b");
+
+        Assertions.assertThat(call.cancelled).isTrue();
+        Assertions.assertThat(released).containsExactly("a", "b");
+        Assertions.assertThat(responses.hasNext()).isFalse();
+    }
+}
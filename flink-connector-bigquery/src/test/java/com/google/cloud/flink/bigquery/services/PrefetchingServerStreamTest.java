@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** */
+public class PrefetchingServerStreamTest {
+
+    static BigQueryServices.BigQueryServerStream<String> fakeStream(Iterable<String> responses) {
+        return new BigQueryServices.BigQueryServerStream<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return responses.iterator();
+            }
+
+            @Override
+            public void cancel() {}
+        };
+    }
+
+    @Test
+    public void testResponsesAreReadAheadInOrder() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<String> expected = Lists.newArrayList("a", "bb", "ccc", "dddd", "eeeee");
+            PrefetchingServerStream<String> stream =
+                    new PrefetchingServerStream<>(
+                            fakeStream(expected), executor, String::length, 2, 3);
+
+            List<String> received = new ArrayList<>();
+            stream.iterator().forEachRemaining(received::add);
+
+            Assertions.assertThat(received).isEqualTo(expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testErrorsAreRethrownAfterReceivedResponses() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Iterable<String> failing =
+                    () ->
+                            new Iterator<String>() {
+                                private boolean served = false;
+
+                                @Override
+                                public boolean hasNext() {
+                                    if (served) {
+                                        throw new IllegalStateException("stream broken");
+                                    }
+                                    return true;
+                                }
+
+                                @Override
+                                public String next() {
+                                    served = true;
+                                    return "a";
+                                }
+                            };
+            Iterator<String> responses =
+                    new PrefetchingServerStream<>(
+                                    fakeStream(failing), executor, String::length, 4, 1024)
+                            .iterator();
+
+            Assertions.assertThat(responses.next()).isEqualTo("a");
+            Assertions.assertThatThrownBy(responses::hasNext)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResponsesAreReservedFromTheMemoryBudget() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MemoryBudget budget = new MemoryBudget(4);
+            PrefetchingServerStream<String> stream =
+                    new PrefetchingServerStream<>(
+                            fakeStream(Lists.newArrayList("aa", "bb", "cc")),
+                            executor,
+                            String::length,
+                            4,
+                            1024,
+                            budget);
+            Iterator<String> responses = stream.iterator();
+            while (budget.getReserved() < 4) {
+                Thread.sleep(1);
+            }
+            // the third response does not fit in the budget until another one is released
+            Thread.sleep(50);
+            Assertions.assertThat(budget.getReserved()).isEqualTo(4);
+
+            List<String> received = new ArrayList<>();
+            responses.forEachRemaining(
+                    response -> {
+                        received.add(response);
+                        budget.release(response.length());
+                    });
+
+            Assertions.assertThat(received).containsExactly("aa", "bb", "cc");
+            Assertions.assertThat(budget.getReserved()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledStreamReleasesItsReservations() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MemoryBudget budget = new MemoryBudget(1024);
+            PrefetchingServerStream<String> stream =
+                    new PrefetchingServerStream<>(
+                            fakeStream(Lists.newArrayList("a", "b", "c")),
+                            executor,
+                            String::length,
+                            4,
+                            1024,
+                            budget);
+            stream.iterator();
+            while (budget.getReserved() < 3) {
+                Thread.sleep(1);
+            }
+            stream.cancel();
+
+            Assertions.assertThat(budget.getReserved()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWakeUpWhileAwaitingResponses() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch received = new CountDownLatch(1);
+        try {
+            Iterable<String> slow =
+                    () ->
+                            new Iterator<String>() {
+                                private boolean served = false;
+
+                                @Override
+                                public boolean hasNext() {
+                                    try {
+                                        received.await();
+                                    } catch (InterruptedException ex) {
+                                        throw new IllegalStateException(ex);
+                                    }
+                                    return !served;
+                                }
+
+                                @Override
+                                public String next() {
+                                    served = true;
+                                    return "a";
+                                }
+                            };
+            PrefetchingServerStream<String> stream =
+                    new PrefetchingServerStream<>(
+                            fakeStream(slow), executor, String::length, 4, 1024);
+            Iterator<String> responses = stream.iterator();
+
+            CompletableFuture.runAsync(
+                    () -> {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        stream.wakeUp();
+                    });
+            Assertions.assertThat(stream.awaitNext()).isFalse();
+
+            // a wake up requested beforehand is not lost
+            stream.wakeUp();
+            Assertions.assertThat(stream.awaitNext()).isFalse();
+
+            received.countDown();
+            Assertions.assertThat(stream.awaitNext()).isTrue();
+            Assertions.assertThat(responses.next()).isEqualTo("a");
+        } finally {
+            received.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledStreamHasNoMoreResponses() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PrefetchingServerStream<String> stream =
+                    new PrefetchingServerStream<>(
+                            fakeStream(Lists.newArrayList("a", "b", "c")),
+                            executor,
+                            String::length,
+                            1,
+                            1024);
+            Iterator<String> responses = stream.iterator();
+            stream.cancel();
+
+            Assertions.assertThat(responses.hasNext()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.services;
+
+import com.google.cloud.bigquery.storage.v1.AvroRows;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.protobuf.ByteString;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/** */
+public class ZeroCopyReadRowsMarshallerTest {
+
+    /** Mimics the stream handed by the gRPC transport, backed by several received buffers. */
+    static class TransportStream extends InputStream implements Detachable, HasByteBuffer {
+        private final List<ByteBuffer> buffers;
+
+        TransportStream(List<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = getByteBuffer();
+            if (buffer == null) {
+                return -1;
+            }
+            byte value = buffer.get();
+            skip(1);
+            return value & 0xFF;
+        }
+
+        @Override
+        public int available() {
+            return buffers.stream().mapToInt(ByteBuffer::remaining).sum();
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            for (ByteBuffer buffer : buffers) {
+                int length = (int) Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + length);
+                skipped += length;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            // the buffers are kept until closed
+        }
+
+        @Override
+        public boolean byteBufferSupported() {
+            return true;
+        }
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffers.stream()
+                    .filter(ByteBuffer::hasRemaining)
+                    .findFirst()
+                    .map(ByteBuffer::duplicate)
+                    .orElse(null);
+        }
+
+        @Override
+        public InputStream detach() {
+            TransportStream detached = new TransportStream(new ArrayList<>(buffers));
+            buffers.clear();
+            return detached;
+        }
+
+        @Override
+        public void close() {
+            buffers.clear();
+        }
+    }
+
+    static ReadRowsResponse createResponse() {
+        byte[] rows = new byte[4096];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (byte) i;
+        }
+        return ReadRowsResponse.newBuilder()
+                .setAvroRows(
+                        AvroRows.newBuilder().setSerializedBinaryRows(ByteString.copyFrom(rows)))
+                .setRowCount(10)
+                .build();
+    }
+
+    static List<ByteBuffer> toDirectBuffers(byte[] serialized, int bufferSize) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < serialized.length; offset += bufferSize) {
+            int length = Math.min(bufferSize, serialized.length - offset);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            buffer.put(serialized, offset, length);
+            buffer.flip();
+            buffers.add(buffer);
+        }
+        return buffers;
+    }
+
+    @Test
+    public void testParseFromTransportBuffers() {
+        ReadRowsResponse expected = createResponse();
+        ZeroCopyReadRowsMarshaller marshaller = new ZeroCopyReadRowsMarshaller();
+        TransportStream stream =
+                new TransportStream(toDirectBuffers(expected.toByteArray(), 1000));
+
+        ReadRowsResponse parsed = marshaller.parse(stream);
+
+        Assertions.assertThat(parsed).isEqualTo(expected);
+        Assertions.assertThat(marshaller.retainedResponses()).isEqualTo(1);
+
+        marshaller.release(parsed);
+        Assertions.assertThat(marshaller.retainedResponses()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReleaseAllRetainedResponses() {
+        ReadRowsResponse expected = createResponse();
+        ZeroCopyReadRowsMarshaller marshaller = new ZeroCopyReadRowsMarshaller();
+        marshaller.parse(new TransportStream(toDirectBuffers(expected.toByteArray(), 512)));
+        marshaller.parse(new TransportStream(toDirectBuffers(expected.toByteArray(), 512)));
+        Assertions.assertThat(marshaller.retainedResponses()).isEqualTo(2);
+
+        marshaller.releaseAll();
+        Assertions.assertThat(marshaller.retainedResponses()).isEqualTo(0);
+    }
+
+    @Test
+    public void testParseFromPlainStream() {
+        ReadRowsResponse expected = createResponse();
+        ZeroCopyReadRowsMarshaller marshaller = new ZeroCopyReadRowsMarshaller();
+
+        ReadRowsResponse parsed =
+                marshaller.parse(new ByteArrayInputStream(expected.toByteArray()));
+
+        Assertions.assertThat(parsed).isEqualTo(expected);
+        // nothing to release when the transport buffers are not available
+        Assertions.assertThat(marshaller.retainedResponses()).isEqualTo(0);
+    }
+}
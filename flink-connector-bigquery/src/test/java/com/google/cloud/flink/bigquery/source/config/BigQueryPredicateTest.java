@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.cloud.flink.bigquery.source.config;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.api.services.bigquery.model.TableSchema;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/** */
+public class BigQueryPredicateTest {
+
+    private static final TableSchema SCHEMA =
+            new TableSchema()
+                    .setFields(
+                            Lists.newArrayList(
+                                    new TableFieldSchema().setName("id").setType("INTEGER"),
+                                    new TableFieldSchema().setName("country").setType("STRING"),
+                                    new TableFieldSchema().setName("amount").setType("NUMERIC"),
+                                    new TableFieldSchema().setName("total").setType("BIGNUMERIC"),
+                                    new TableFieldSchema().setName("score").setType("FLOAT"),
+                                    new TableFieldSchema().setName("day").setType("DATE"),
+                                    new TableFieldSchema().setName("ts").setType("TIMESTAMP"),
+                                    new TableFieldSchema()
+                                            .setName("tags")
+                                            .setType("STRING")
+                                            .setMode("REPEATED"),
+                                    new TableFieldSchema()
+                                            .setName("payload")
+                                            .setType("RECORD")
+                                            .setFields(
+                                                    Lists.newArrayList(
+                                                            new TableFieldSchema()
+                                                                    .setName("user")
+                                                                    .setType("STRING")))));
+
+    @Test
+    public void testRowRestrictionTranslation() {
+        BigQueryPredicate predicate =
+                BigQueryPredicate.and(
+                        BigQueryPredicate.greaterThanOrEqual(
+                                "ts", Instant.parse("2023-01-02T03:04:05.123456Z")),
+                        BigQueryPredicate.or(
+                                BigQueryPredicate.in("country", "AR", "O'Neil"),
+                                BigQueryPredicate.isNull("payload.user")),
+                        BigQueryPredicate.lessThan("amount", new BigDecimal("10.5")),
+                        BigQueryPredicate.equalTo("day", LocalDate.of(2023, 1, 2)),
+                        BigQueryPredicate.notEqualTo("id", 7L));
+
+        predicate.validate(SCHEMA);
+        Assertions.assertThat(predicate.toRowRestriction())
+                .isEqualTo(
+                        "(`ts` >= TIMESTAMP '2023-01-02 03:04:05.123456+00:00')"
+                                + " AND ((`country` IN ('AR', 'O\\'Neil'))"
+                                + " OR (`payload`.`user` IS NULL))"
+                                + " AND (`amount` < NUMERIC '10.5')"
+                                + " AND (`day` = DATE '2023-01-02')"
+                                + " AND (`id` != 7)");
+    }
+
+    @Test
+    public void testValidationAgainstSchema() {
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryPredicate.equalTo("missing", 1L).validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryPredicate.equalTo("id", "1").validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> BigQueryPredicate.isNull("tags").validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryPredicate.isNull("country.code").validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testDecimalLiteralsOfBigNumericColumns() {
+        BigQueryPredicate predicate =
+                BigQueryPredicate.and(
+                        BigQueryPredicate.greaterThan(
+                                "total", new BigDecimal("123456789012345678901234567890.5")),
+                        BigQueryPredicate.in("total", new BigDecimal("1.5"), 2L),
+                        BigQueryPredicate.lessThan("amount", new BigDecimal("10.5")));
+
+        predicate.validate(SCHEMA);
+        Assertions.assertThat(predicate.toRowRestriction())
+                .isEqualTo(
+                        "(`total` > BIGNUMERIC '123456789012345678901234567890.5')"
+                                + " AND (`total` IN (BIGNUMERIC '1.5', 2))"
+                                + " AND (`amount` < NUMERIC '10.5')");
+    }
+
+    @Test
+    public void testNonFiniteLiterals() {
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryPredicate.equalTo("score", Double.NaN).validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(
+                        () ->
+                                BigQueryPredicate.in("score", 1.5, Float.POSITIVE_INFINITY)
+                                        .validate(SCHEMA))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(
+                        () ->
+                                BigQueryPredicate.lessThan("score", Double.NEGATIVE_INFINITY)
+                                        .toRowRestriction())
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(BigQueryPredicate.lessThan("score", 1.5).toRowRestriction())
+                .isEqualTo("`score` < 1.5");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.enumerator;
+
+import org.apache.flink.api.connector.source.Boundedness;
+import org.apache.flink.api.connector.source.SourceEvent;
+import org.apache.flink.connector.testutils.source.reader.TestingSplitEnumeratorContext;
+
+import com.google.cloud.flink.bigquery.common.config.BigQueryConnectOptions;
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamAckEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamRequestEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitStreamResponseEvent;
+import com.google.cloud.flink.bigquery.source.event.SplitsProgressEvent;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitAssigner;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/** */
+public class BigQuerySourceEnumeratorTest {
+
+    private TestingSplitEnumeratorContext<BigQuerySourceSplit> context;
+    private BigQuerySourceEnumerator enumerator;
+
+    @Before
+    public void setUp() throws IOException {
+        context = new TestingSplitEnumeratorContext<>(2);
+        context.registerReader(0, "localhost");
+        context.registerReader(1, "localhost");
+        BigQueryReadOptions readOptions =
+                BigQueryReadOptions.builder()
+                        .setBigQueryConnectOptions(
+                                BigQueryConnectOptions.builder()
+                                        .setProjectId("project")
+                                        .setDataset("dataset")
+                                        .setTable("table")
+                                        .build())
+                        .build();
+        // the read session streams were already discovered
+        BigQuerySourceSplitAssigner splitAssigner =
+                new BigQuerySourceSplitAssigner(
+                        readOptions,
+                        new BigQuerySourceEnumState(
+                                new ArrayList<>(Arrays.asList("stream-1", "stream-2")),
+                                new ArrayList<>(),
+                                new ArrayList<>(),
+                                new HashMap<>(),
+                                true));
+        enumerator = new BigQuerySourceEnumerator(Boundedness.BOUNDED, context, splitAssigner);
+        enumerator.start();
+
+        // each reader gets one of the streams, then reports its progress
+        enumerator.handleSplitRequest(0, "localhost");
+        enumerator.handleSplitRequest(1, "localhost");
+        enumerator.handleSourceEvent(
+                0, new SplitsProgressEvent(Collections.singletonMap("stream-1", 0.2), 0L));
+        enumerator.handleSourceEvent(
+                1, new SplitsProgressEvent(Collections.singletonMap("stream-2", 0.4), 0L));
+    }
+
+    private List<SourceEvent> sentEvents(int subtaskId) {
+        return context.getSentSourceEvent().getOrDefault(subtaskId, Collections.emptyList());
+    }
+
+    private List<BigQuerySourceSplit> assignedSplits(int subtaskId) {
+        return context.getSplitAssignments().get(subtaskId).getAssignedSplits();
+    }
+
+    private static void assertStreamSplitRequest(
+            SourceEvent event, String splitId, double fraction) {
+        Assertions.assertThat(event).isInstanceOf(SplitStreamRequestEvent.class);
+        SplitStreamRequestEvent request = (SplitStreamRequestEvent) event;
+        Assertions.assertThat(request.getSplitId()).isEqualTo(splitId);
+        Assertions.assertThat(request.getFraction()).isCloseTo(fraction, Assertions.within(1e-9));
+    }
+
+    @Test
+    public void testLeastAdvancedSplitIsSplit() {
+        // reader 1 runs out of streams, the split of reader 0 is less advanced
+        enumerator.handleSplitRequest(1, "localhost");
+        Assertions.assertThat(sentEvents(0)).hasSize(1);
+        assertStreamSplitRequest(sentEvents(0).get(0), "stream-1", 0.6);
+        Assertions.assertThat(sentEvents(1)).isEmpty();
+
+        BigQuerySourceSplit remainder = new BigQuerySourceSplit("remainder-1");
+        enumerator.handleSourceEvent(0, new SplitStreamResponseEvent("stream-1", remainder));
+
+        Assertions.assertThat(assignedSplits(1))
+                .containsExactly(new BigQuerySourceSplit("stream-2"), remainder);
+        // the reader is told the remainder is held by the enumerator
+        Assertions.assertThat(sentEvents(0)).hasSize(2);
+        Assertions.assertThat(sentEvents(0).get(1)).isInstanceOf(SplitStreamAckEvent.class);
+        Assertions.assertThat(((SplitStreamAckEvent) sentEvents(0).get(1)).getSplitId())
+                .isEqualTo("stream-1");
+    }
+
+    @Test
+    public void testUnsplittableSplitsAreNotRequestedAgain() {
+        enumerator.handleSplitRequest(1, "localhost");
+        enumerator.handleSourceEvent(0, new SplitStreamResponseEvent("stream-1", null));
+
+        // the next least advanced split is requested instead
+        Assertions.assertThat(sentEvents(0)).hasSize(1);
+        Assertions.assertThat(sentEvents(1)).hasSize(1);
+        assertStreamSplitRequest(sentEvents(1).get(0), "stream-2", 0.7);
+
+        enumerator.handleSourceEvent(1, new SplitStreamResponseEvent("stream-2", null));
+
+        // no split is worth splitting anymore
+        Assertions.assertThat(sentEvents(0)).hasSize(1);
+        Assertions.assertThat(sentEvents(1)).hasSize(1);
+        Assertions.assertThat(context.getSplitAssignments().get(1).hasReceivedNoMoreSplitsSignal())
+                .isTrue();
+    }
+
+    @Test
+    public void testFailedReaderStreamSplitsAreDiscarded() {
+        enumerator.handleSplitRequest(1, "localhost");
+        assertStreamSplitRequest(sentEvents(0).get(0), "stream-1", 0.6);
+
+        // reader 0 fails before answering, its split is handed to the awaiting reader 1
+        context.unregisterReader(0);
+        enumerator.addSplitsBack(Collections.singletonList(new BigQuerySourceSplit("stream-1")), 0);
+        context.registerReader(0, "localhost");
+        enumerator.addReader(0);
+        enumerator.handleSplitRequest(0, "localhost");
+        Assertions.assertThat(assignedSplits(1))
+                .containsExactly(
+                        new BigQuerySourceSplit("stream-2"), new BigQuerySourceSplit("stream-1"));
+
+        // the pending request and the progress of the failed reader do not count anymore
+        Assertions.assertThat(sentEvents(0)).hasSize(1);
+        Assertions.assertThat(sentEvents(1)).hasSize(1);
+        assertStreamSplitRequest(sentEvents(1).get(0), "stream-2", 0.7);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.flink.bigquery.services.BigQueryServices;
+import com.google.cloud.flink.bigquery.source.event.SplitsProgressEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** */
+public class BigQueryReaderStreamsContextTest {
+
+    static BigQueryServices.BigQueryServerStream<ReadRowsResponse> countingStream(
+            AtomicInteger cancellations) {
+        return new BigQueryServices.BigQueryServerStream<ReadRowsResponse>() {
+            @Override
+            public Iterator<ReadRowsResponse> iterator() {
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public void cancel() {
+                cancellations.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void testRowsLimitCancelsOpenStreams() {
+        AtomicInteger cancellations = new AtomicInteger();
+        BigQueryReaderStreamsContext streamsContext = new BigQueryReaderStreamsContext(2L);
+        streamsContext.registerStream("split-1", countingStream(cancellations));
+
+        Assertions.assertThat(streamsContext.acquireRow()).isTrue();
+        Assertions.assertThat(streamsContext.acquireRow()).isTrue();
+        Assertions.assertThat(streamsContext.isReadingCancelled()).isFalse();
+
+        Assertions.assertThat(streamsContext.acquireRow()).isFalse();
+        Assertions.assertThat(streamsContext.isReadingCancelled()).isTrue();
+        Assertions.assertThat(cancellations.get()).isEqualTo(1);
+
+        // streams opened after the cancellation are cancelled right away
+        streamsContext.registerStream("split-2", countingStream(cancellations));
+        Assertions.assertThat(cancellations.get()).isEqualTo(2);
+
+        Assertions.assertThat(streamsContext.pollProgress())
+                .map(SplitsProgressEvent::getEmittedRows)
+                .hasValue(2L);
+    }
+
+    @Test
+    public void testNoRowsLimit() {
+        BigQueryReaderStreamsContext streamsContext = new BigQueryReaderStreamsContext(-1L);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertThat(streamsContext.acquireRow()).isTrue();
+        }
+        Assertions.assertThat(streamsContext.isReadingCancelled()).isFalse();
+        Assertions.assertThat(streamsContext.pollProgress())
+                .map(SplitsProgressEvent::getEmittedRows)
+                .hasValue(1000L);
+        // nothing changed since the last report
+        Assertions.assertThat(streamsContext.pollProgress()).isEmpty();
+    }
+
+    @Test
+    public void testStreamSwitchIsCheckpointedOnceAcknowledged() {
+        BigQueryReaderStreamsContext streamsContext = new BigQueryReaderStreamsContext(-1L);
+        streamsContext.switchStream("split-1", "primary-1");
+        // the remainder may not have reached the enumerator yet
+        Assertions.assertThat(streamsContext.currentStreamName("split-1")).isEmpty();
+
+        streamsContext.acknowledgeStreamSwitch("split-1");
+        Assertions.assertThat(streamsContext.currentStreamName("split-1")).hasValue("primary-1");
+
+        streamsContext.switchStream("split-1", "primary-2");
+        Assertions.assertThat(streamsContext.currentStreamName("split-1")).hasValue("primary-1");
+
+        streamsContext.removeStream("split-1");
+        streamsContext.acknowledgeStreamSwitch("split-1");
+        Assertions.assertThat(streamsContext.currentStreamName("split-1")).isEmpty();
+    }
+}
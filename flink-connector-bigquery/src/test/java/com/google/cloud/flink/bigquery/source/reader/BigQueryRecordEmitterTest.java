@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.api.common.eventtime.Watermark;
+import org.apache.flink.api.connector.source.SourceOutput;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplitState;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** */
+public class BigQueryRecordEmitterTest {
+
+    private static final RowType ROW_TYPE =
+            SchemaTransform.toFlinkRowType(
+                    Lists.newArrayList(
+                            new TableFieldSchema().setName("id").setType("INTEGER"),
+                            new TableFieldSchema().setName("ts").setType("TIMESTAMP")));
+
+    /** Collects the timestamps of the emitted records, null for the ones without timestamp. */
+    static class TimestampsOutput implements SourceOutput<RowData> {
+        final List<Long> timestamps = new ArrayList<>();
+
+        @Override
+        public void collect(RowData record) {
+            timestamps.add(null);
+        }
+
+        @Override
+        public void collect(RowData record, long timestamp) {
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public void emitWatermark(Watermark watermark) {}
+
+        @Override
+        public void markIdle() {}
+
+        @Override
+        public void markActive() {}
+    }
+
+    @Test
+    public void testRecordsAreEmittedWithTheirEventTime() {
+        BigQueryRecordEmitter emitter =
+                new BigQueryRecordEmitter(new BigQueryReaderStreamsContext(-1L), ROW_TYPE, "ts");
+        BigQuerySourceSplitState splitState =
+                new BigQuerySourceSplitState(new BigQuerySourceSplit("stream", 0L));
+        TimestampsOutput output = new TimestampsOutput();
+
+        BigQueryRecord record = new BigQueryRecord(0L);
+        emitter.emitRecord(
+                record.next(GenericRowData.of(1L, TimestampData.fromEpochMillis(1000L, 500))),
+                output,
+                splitState);
+        emitter.emitRecord(record.next(GenericRowData.of(2L, null)), output, splitState);
+
+        Assertions.assertThat(output.timestamps).containsExactly(1000L, null);
+    }
+
+    @Test
+    public void testRecordsAreEmittedWithoutEventTimeColumn() {
+        BigQueryRecordEmitter emitter =
+                new BigQueryRecordEmitter(new BigQueryReaderStreamsContext(-1L), ROW_TYPE, null);
+        BigQuerySourceSplitState splitState =
+                new BigQuerySourceSplitState(new BigQuerySourceSplit("stream", 0L));
+        TimestampsOutput output = new TimestampsOutput();
+
+        emitter.emitRecord(
+                new BigQueryRecord(0L)
+                        .next(GenericRowData.of(1L, TimestampData.fromEpochMillis(1000L))),
+                output,
+                splitState);
+
+        Assertions.assertThat(output.timestamps).containsExactly((Long) null);
+    }
+
+    @Test
+    public void testInvalidEventTimeColumns() {
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryRecordEmitter.eventTimeFieldIndex(ROW_TYPE, "missing"))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(
+                        () -> BigQueryRecordEmitter.eventTimeFieldIndex(ROW_TYPE, "id"))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(BigQueryRecordEmitter.eventTimeFieldIndex(ROW_TYPE, "ts"))
+                .isEqualTo(1);
+    }
+}
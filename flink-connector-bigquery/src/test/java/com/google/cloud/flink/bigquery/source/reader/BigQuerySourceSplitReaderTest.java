@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader;
+
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsAddition;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.AvroRows;
+import com.google.cloud.bigquery.storage.v1.AvroSchema;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamRequest;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamResponse;
+import com.google.cloud.flink.bigquery.common.config.BigQueryConnectOptions;
+import com.google.cloud.flink.bigquery.common.config.CredentialsOptions;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import com.google.cloud.flink.bigquery.services.BigQueryServices;
+import com.google.cloud.flink.bigquery.source.config.BigQueryReadOptions;
+import com.google.cloud.flink.bigquery.source.split.BigQuerySourceSplit;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/** */
+public class BigQuerySourceSplitReaderTest {
+
+    private static final RowType ROW_TYPE =
+            SchemaTransform.toFlinkRowType(
+                    Lists.newArrayList(new TableFieldSchema().setName("id").setType("INTEGER")));
+
+    private static final String AVRO_SCHEMA_STRING =
+            "{\"type\": \"record\", \"name\": \"__root__\", \"fields\": ["
+                    + "{\"name\": \"id\", \"type\": [\"null\", \"long\"]}]}";
+
+    private static final Schema AVRO_SCHEMA = new Schema.Parser().parse(AVRO_SCHEMA_STRING);
+
+    private static final long FETCH_TIMEOUT_MILLIS = 10_000L;
+
+    /**
+     * A storage client serving streams of a fixed number of rows, one row per response, whose id
+     * is the offset of the row in the stream. The streams can be made to fail at a given offset,
+     * for a number of times.
+     */
+    static class FakeStorageReadClient implements BigQueryServices.StorageReadClient {
+        private final Map<String, Long> rowCounts = new HashMap<>();
+        private final Map<String, StreamFailure> failures = new HashMap<>();
+        final List<FakeServerStream> openedStreams = new CopyOnWriteArrayList<>();
+
+        FakeStorageReadClient withStream(String streamName, long rowCount) {
+            rowCounts.put(streamName, rowCount);
+            return this;
+        }
+
+        FakeStorageReadClient withFailure(
+                String streamName, long offset, Status status, int times) {
+            failures.put(streamName, new StreamFailure(offset, status, times));
+            return this;
+        }
+
+        @Override
+        public ReadSession createReadSession(CreateReadSessionRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BigQueryServices.BigQueryServerStream<ReadRowsResponse> readRows(
+                ReadRowsRequest request) {
+            FakeServerStream stream =
+                    new FakeServerStream(
+                            request.getReadStream(),
+                            request.getOffset(),
+                            rowCounts.get(request.getReadStream()),
+                            failures.get(request.getReadStream()));
+            openedStreams.add(stream);
+            return stream;
+        }
+
+        @Override
+        public SplitReadStreamResponse splitReadStream(SplitReadStreamRequest request) {
+            return SplitReadStreamResponse.getDefaultInstance();
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /** The failure of a stream once it reaches an offset, for a number of times. */
+    static class StreamFailure {
+        final long offset;
+        final Status status;
+        int remaining;
+
+        StreamFailure(long offset, Status status, int times) {
+            this.offset = offset;
+            this.status = status;
+            this.remaining = times;
+        }
+    }
+
+    /** A stream of rows, the first response of the stream carrying the Avro schema. */
+    static class FakeServerStream
+            implements BigQueryServices.BigQueryServerStream<ReadRowsResponse> {
+        final String streamName;
+        final long startOffset;
+        private final long rowCount;
+        @Nullable private final StreamFailure failure;
+        volatile boolean cancelled;
+
+        FakeServerStream(
+                String streamName,
+                long startOffset,
+                long rowCount,
+                @Nullable StreamFailure failure) {
+            this.streamName = streamName;
+            this.startOffset = startOffset;
+            this.rowCount = rowCount;
+            this.failure = failure;
+        }
+
+        @Override
+        public Iterator<ReadRowsResponse> iterator() {
+            return new Iterator<ReadRowsResponse>() {
+                private long offset = startOffset;
+
+                @Override
+                public boolean hasNext() {
+                    if (failure != null && failure.offset == offset && failure.remaining > 0) {
+                        failure.remaining--;
+                        throw new StatusRuntimeException(failure.status);
+                    }
+                    return !cancelled && offset < rowCount;
+                }
+
+                @Override
+                public ReadRowsResponse next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return createResponse(offset == startOffset, offset++);
+                }
+            };
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    static ReadRowsResponse createResponse(boolean withSchema, long id) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        GenericRecord record = new GenericData.Record(AVRO_SCHEMA);
+        record.put("id", id);
+        try {
+            new GenericDatumWriter<GenericRecord>(AVRO_SCHEMA).write(record, encoder);
+            encoder.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        ReadRowsResponse.Builder response =
+                ReadRowsResponse.newBuilder()
+                        .setAvroRows(
+                                AvroRows.newBuilder()
+                                        .setSerializedBinaryRows(
+                                                ByteString.copyFrom(out.toByteArray())))
+                        .setRowCount(1L);
+        if (withSchema) {
+            response.setAvroSchema(AvroSchema.newBuilder().setSchema(AVRO_SCHEMA_STRING));
+        }
+        return response.build();
+    }
+
+    static BigQueryReadOptions.Builder readOptions(FakeStorageReadClient client)
+            throws IOException {
+        BigQueryServices services =
+                new BigQueryServices() {
+                    @Override
+                    public BigQueryServices.QueryDataClient getQueryDataClient(
+                            CredentialsOptions credentialsOptions) {
+                        return null;
+                    }
+
+                    @Override
+                    public BigQueryServices.StorageReadClient getStorageClient(
+                            CredentialsOptions credentialsOptions) {
+                        return client;
+                    }
+                };
+        // the responses are received by the fetching thread, so the fetches are deterministic
+        return BigQueryReadOptions.builder()
+                .setBigQueryConnectOptions(
+                        BigQueryConnectOptions.builder()
+                                .setProjectId("project")
+                                .setDataset("dataset")
+                                .setTable("table")
+                                .setTestingBigQueryServices(() -> services)
+                                .build())
+                .setDataFormat(DataFormat.AVRO)
+                .setReadAheadQueueDepth(0)
+                .setSplitsAhead(0);
+    }
+
+    static BigQuerySourceSplitReader createReader(
+            BigQueryReadOptions readOptions, BigQuerySourceSplit... splits) {
+        BigQuerySourceSplitReader reader =
+                new BigQuerySourceSplitReader(
+                        readOptions, ROW_TYPE, new BigQueryReaderStreamsContext(-1L));
+        reader.handleSplitsChanges(new SplitsAddition<>(Arrays.asList(splits)));
+        return reader;
+    }
+
+    static CompletableFuture<RecordsWithSplitIds<BigQueryRecord>> fetchAsync(
+            BigQuerySourceSplitReader reader) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return reader.fetch();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    /** Fetches until the given split is finished, listing the rows and finished splits fetched. */
+    static List<String> fetchUntilFinished(BigQuerySourceSplitReader reader, String splitId)
+            throws IOException {
+        List<String> fetched = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + FETCH_TIMEOUT_MILLIS;
+        while (!fetched.contains("finished " + splitId)) {
+            Assertions.assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            fetched.addAll(fetch(reader, 1));
+        }
+        return fetched;
+    }
+
+    /** Fetches the given number of times, listing the rows and finished splits fetched. */
+    static List<String> fetch(BigQuerySourceSplitReader reader, int times) throws IOException {
+        List<String> fetched = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            RecordsWithSplitIds<BigQueryRecord> records = reader.fetch();
+            String splitId;
+            while ((splitId = records.nextSplit()) != null) {
+                BigQueryRecord record;
+                while ((record = records.nextRecordFromSplit()) != null) {
+                    fetched.add(splitId + ":" + record.getRow().getLong(0));
+                }
+            }
+            records.finishedSplits().forEach(finished -> fetched.add("finished " + finished));
+            records.recycle();
+        }
+        return fetched;
+    }
+
+    @Test
+    public void testOpenStreamsAreReadInRoundRobin() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient().withStream("stream-a", 2L).withStream("stream-b", 3L);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(2).build(),
+                        new BigQuerySourceSplit("stream-a"),
+                        new BigQuerySourceSplit("stream-b"));
+        try {
+            Assertions.assertThat(fetch(reader, 7))
+                    .containsExactly(
+                            "stream-a:0",
+                            "stream-b:0",
+                            "stream-a:1",
+                            "stream-b:1",
+                            "finished stream-a",
+                            // the rotation goes on with the streams left
+                            "stream-b:2",
+                            "finished stream-b");
+            Assertions.assertThat(client.openedStreams)
+                    .allSatisfy(stream -> Assertions.assertThat(stream.cancelled).isTrue());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testWaitForMemoryBudgetIsWokenUp() throws Exception {
+        FakeStorageReadClient client = new FakeStorageReadClient().withStream("stream-a", 2L);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setReaderMemoryBudget(1L).build(),
+                        new BigQuerySourceSplit("stream-a"));
+        try {
+            // the rows of the first response are not emitted yet, so the budget is used up
+            RecordsWithSplitIds<BigQueryRecord> held = reader.fetch();
+            CompletableFuture<RecordsWithSplitIds<BigQueryRecord>> blocked = fetchAsync(reader);
+            Thread.sleep(200L);
+            Assertions.assertThat(blocked).isNotDone();
+
+            reader.wakeUp();
+            Assertions.assertThat(blocked.get(10L, TimeUnit.SECONDS).nextSplit()).isNull();
+
+            held.recycle();
+            Assertions.assertThat(fetch(reader, 2))
+                    .containsExactly("stream-a:1", "finished stream-a");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testPausedSplitsAreNotFetched() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient().withStream("stream-a", 3L).withStream("stream-b", 3L);
+        BigQuerySourceSplit splitA = new BigQuerySourceSplit("stream-a");
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(2).build(),
+                        splitA,
+                        new BigQuerySourceSplit("stream-b"));
+        try {
+            Assertions.assertThat(fetch(reader, 1)).containsExactly("stream-a:0");
+
+            reader.pauseOrResumeSplits(Collections.singletonList(splitA), Collections.emptyList());
+            Assertions.assertThat(fetch(reader, 2)).containsExactly("stream-b:0", "stream-b:1");
+
+            reader.pauseOrResumeSplits(Collections.emptyList(), Collections.singletonList(splitA));
+            Assertions.assertThat(fetch(reader, 2)).containsExactly("stream-a:1", "stream-b:2");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSplitsPausedBeforeOpeningAreOpenedOnceResumed() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient().withStream("stream-a", 1L).withStream("stream-b", 1L);
+        BigQuerySourceSplit splitA = new BigQuerySourceSplit("stream-a");
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(1).build(),
+                        splitA,
+                        new BigQuerySourceSplit("stream-b"));
+        try {
+            // the paused split does not hold up the splits assigned after it
+            reader.pauseOrResumeSplits(Collections.singletonList(splitA), Collections.emptyList());
+            Assertions.assertThat(fetch(reader, 3))
+                    .containsExactly("stream-b:0", "finished stream-b");
+            Assertions.assertThat(openedStreamNames(client)).containsExactly("stream-b");
+
+            reader.pauseOrResumeSplits(Collections.emptyList(), Collections.singletonList(splitA));
+            Assertions.assertThat(fetch(reader, 2))
+                    .containsExactly("stream-a:0", "finished stream-a");
+            Assertions.assertThat(openedStreamNames(client))
+                    .containsExactly("stream-b", "stream-a");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testIdleFetcherIsWokenUpToResumeSplits() throws Exception {
+        FakeStorageReadClient client = new FakeStorageReadClient().withStream("stream-a", 1L);
+        BigQuerySourceSplit splitA = new BigQuerySourceSplit("stream-a");
+        BigQuerySourceSplitReader reader = createReader(readOptions(client).build(), splitA);
+        try {
+            reader.pauseOrResumeSplits(Collections.singletonList(splitA), Collections.emptyList());
+            // the fetcher waits for a split to be resumed until woken up, like the fetcher
+            // manager does before handing over the resumed splits
+            reader.wakeUp();
+            Assertions.assertThat(fetchAsync(reader).get(10L, TimeUnit.SECONDS).nextSplit())
+                    .isNull();
+            Assertions.assertThat(client.openedStreams).isEmpty();
+
+            reader.pauseOrResumeSplits(Collections.emptyList(), Collections.singletonList(splitA));
+            Assertions.assertThat(fetch(reader, 2))
+                    .containsExactly("stream-a:0", "finished stream-a");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStreamsOfSplitsAheadArePreopened() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient()
+                        .withStream("stream-a", 1L)
+                        .withStream("stream-b", 1L)
+                        .withStream("stream-c", 1L);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(1).setSplitsAhead(1).build(),
+                        new BigQuerySourceSplit("stream-a"),
+                        new BigQuerySourceSplit("stream-b"),
+                        new BigQuerySourceSplit("stream-c"));
+        try {
+            // only as many streams as splits ahead are opened besides the read ones
+            Assertions.assertThat(fetch(reader, 1)).containsExactly("stream-a:0");
+            Assertions.assertThat(openedStreamNames(client))
+                    .containsExactly("stream-a", "stream-b");
+
+            // the preopened stream takes the place of the finished one, without being reopened
+            Assertions.assertThat(fetch(reader, 2))
+                    .containsExactly("finished stream-a", "stream-b:0");
+            Assertions.assertThat(openedStreamNames(client))
+                    .containsExactly("stream-a", "stream-b", "stream-c");
+            Assertions.assertThat(client.openedStreams.get(1).cancelled).isFalse();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testPreopenedStreamsAreClosed() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient().withStream("stream-a", 2L).withStream("stream-b", 2L);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(1).setSplitsAhead(1).build(),
+                        new BigQuerySourceSplit("stream-a"),
+                        new BigQuerySourceSplit("stream-b"));
+        Assertions.assertThat(fetch(reader, 1)).containsExactly("stream-a:0");
+        Assertions.assertThat(openedStreamNames(client)).containsExactly("stream-a", "stream-b");
+
+        reader.close();
+        Assertions.assertThat(client.openedStreams)
+                .allSatisfy(stream -> Assertions.assertThat(stream.cancelled).isTrue());
+    }
+
+    @Test
+    public void testFailedStreamIsReopenedAtReadOffset() throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient()
+                        .withStream("stream-a", 3L)
+                        .withStream("stream-b", 3L)
+                        .withFailure("stream-a", 1L, Status.UNAVAILABLE, 1);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxConcurrentStreams(2).build(),
+                        new BigQuerySourceSplit("stream-a"),
+                        new BigQuerySourceSplit("stream-b"));
+        try {
+            Assertions.assertThat(fetchUntilFinished(reader, "stream-a"))
+                    .containsExactly(
+                            "stream-a:0",
+                            "stream-b:0",
+                            // the other stream is still read while the failed one waits
+                            "stream-b:1",
+                            "stream-b:2",
+                            "finished stream-b",
+                            "stream-a:1",
+                            "stream-a:2",
+                            "finished stream-a");
+            Assertions.assertThat(openedStreamNames(client))
+                    .containsExactly("stream-a", "stream-b", "stream-a");
+            FakeServerStream failed = client.openedStreams.get(0);
+            FakeServerStream reopened = client.openedStreams.get(2);
+            Assertions.assertThat(failed.cancelled).isTrue();
+            Assertions.assertThat(reopened.startOffset).isEqualTo(1L);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testFailedStreamIsReopenedUntilRetriesAreExhausted() throws Exception {
+        Status streamReset = Status.INTERNAL.withDescription("RST_STREAM closed stream.");
+        FakeStorageReadClient client =
+                new FakeStorageReadClient()
+                        .withStream("stream-a", 3L)
+                        .withFailure("stream-a", 1L, streamReset, 2);
+        BigQuerySourceSplitReader reader =
+                createReader(
+                        readOptions(client).setMaxStreamRetries(1).build(),
+                        new BigQuerySourceSplit("stream-a"));
+        try {
+            Assertions.assertThatThrownBy(() -> fetchUntilFinished(reader, "stream-a"))
+                    .isInstanceOf(IOException.class)
+                    .hasRootCauseInstanceOf(StatusRuntimeException.class);
+            // the reopened stream failed again before delivering any response
+            Assertions.assertThat(client.openedStreams).hasSize(2);
+            Assertions.assertThat(client.openedStreams.get(1).startOffset).isEqualTo(1L);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStreamIsNotReopenedOnPermanentFailure() throws Exception {
+        assertNotReopened(Status.PERMISSION_DENIED);
+        // only the internal errors reporting a stream reset are transient
+        assertNotReopened(Status.INTERNAL.withDescription("Unexpected server error."));
+    }
+
+    private static void assertNotReopened(Status status) throws Exception {
+        FakeStorageReadClient client =
+                new FakeStorageReadClient()
+                        .withStream("stream-a", 3L)
+                        .withFailure("stream-a", 1L, status, 1);
+        BigQuerySourceSplitReader reader =
+                createReader(readOptions(client).build(), new BigQuerySourceSplit("stream-a"));
+        try {
+            Assertions.assertThat(fetch(reader, 1)).containsExactly("stream-a:0");
+            Assertions.assertThatThrownBy(() -> fetch(reader, 1))
+                    .isInstanceOf(IOException.class)
+                    .hasRootCauseInstanceOf(StatusRuntimeException.class);
+            Assertions.assertThat(client.openedStreams).hasSize(1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<String> openedStreamNames(FakeStorageReadClient client) {
+        return client.openedStreams.stream()
+                .map(stream -> stream.streamName)
+                .collect(Collectors.toList());
+    }
+}
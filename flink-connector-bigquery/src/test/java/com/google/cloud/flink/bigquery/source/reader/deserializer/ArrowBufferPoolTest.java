@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+/** */
+public class ArrowBufferPoolTest {
+
+    @Test
+    public void testFreeBuffersAreReused() {
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowBufferPool pool = new ArrowBufferPool(allocator, 2)) {
+            ArrowBuf first = pool.acquire(64);
+            first.close();
+            ArrowBuf reused = pool.acquire(32);
+            Assertions.assertThat(reused).isSameAs(first);
+
+            // a buffer still in use can not be handed out again
+            ArrowBuf second = pool.acquire(32);
+            Assertions.assertThat(second).isNotSameAs(first);
+            reused.close();
+            second.close();
+
+            // a free buffer which is too small gets replaced
+            ArrowBuf bigger = pool.acquire(1024);
+            Assertions.assertThat(bigger.capacity()).isGreaterThanOrEqualTo(1024);
+            Assertions.assertThat(pool.size()).isEqualTo(2);
+            bigger.close();
+        }
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        try (BufferAllocator allocator = new RootAllocator()) {
+            ArrowBuf inUse;
+            try (ArrowBufferPool pool = new ArrowBufferPool(allocator, 1)) {
+                inUse = pool.acquire(64);
+                pool.acquire(64).close();
+                Assertions.assertThat(pool.size()).isEqualTo(1);
+            }
+            // the buffer handed over by the pool is still valid for its user
+            Assertions.assertThat(inUse.getReferenceManager().getRefCount()).isEqualTo(1);
+            inUse.close();
+        }
+    }
+}
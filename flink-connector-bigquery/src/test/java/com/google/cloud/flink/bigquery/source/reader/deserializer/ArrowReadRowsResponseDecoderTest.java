@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.CloseableIterator;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.ArrowSchema;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import com.google.protobuf.ByteString;
+import org.apache.arrow.compression.Lz4CompressionCodec;
+import org.apache.arrow.compression.ZstdCompressionCodec;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.compression.CompressionCodec;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/** */
+public class ArrowReadRowsResponseDecoderTest {
+
+    private static final RowType ROW_TYPE =
+            SchemaTransform.toFlinkRowType(
+                    Lists.newArrayList(
+                            new TableFieldSchema().setName("id").setType("INTEGER"),
+                            new TableFieldSchema().setName("name").setType("STRING")));
+
+    private static final Schema ARROW_SCHEMA =
+            new Schema(
+                    Lists.newArrayList(
+                            Field.nullable("id", new ArrowType.Int(64, true)),
+                            Field.nullable("name", new ArrowType.Utf8())));
+
+    static ReadRowsResponse createResponse(BufferAllocator allocator) throws IOException {
+        return createResponse(allocator, NoCompressionCodec.INSTANCE);
+    }
+
+    static ReadRowsResponse createResponse(BufferAllocator allocator, CompressionCodec codec)
+            throws IOException {
+        try (VectorSchemaRoot root = VectorSchemaRoot.create(ARROW_SCHEMA, allocator)) {
+            BigIntVector ids = (BigIntVector) root.getVector("id");
+            VarCharVector names = (VarCharVector) root.getVector("name");
+            ids.allocateNew(2);
+            names.allocateNew(2);
+            ids.set(0, 1L);
+            names.set(0, "first".getBytes(StandardCharsets.UTF_8));
+            ids.set(1, 2L);
+            names.setNull(1);
+            root.setRowCount(2);
+
+            ByteArrayOutputStream schemaOut = new ByteArrayOutputStream();
+            MessageSerializer.serialize(
+                    new WriteChannel(Channels.newChannel(schemaOut)), ARROW_SCHEMA);
+            ByteArrayOutputStream batchOut = new ByteArrayOutputStream();
+            try (ArrowRecordBatch batch =
+                    new VectorUnloader(root, true, codec, true).getRecordBatch()) {
+                MessageSerializer.serialize(new WriteChannel(Channels.newChannel(batchOut)), batch);
+            }
+
+            return ReadRowsResponse.newBuilder()
+                    .setArrowSchema(
+                            ArrowSchema.newBuilder()
+                                    .setSerializedSchema(
+                                            ByteString.copyFrom(schemaOut.toByteArray())))
+                    .setArrowRecordBatch(
+                            com.google.cloud.bigquery.storage.v1.ArrowRecordBatch.newBuilder()
+                                    .setSerializedRecordBatch(
+                                            ByteString.copyFrom(batchOut.toByteArray()))
+                                    .setRowCount(2))
+                    .setRowCount(2)
+                    .build();
+        }
+    }
+
+    @Test
+    public void testDecodeRecordBatch() throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowReadRowsResponseDecoder decoder =
+                        new ArrowReadRowsResponseDecoder(ROW_TYPE, allocator);
+                CloseableIterator<RowData> rows = decoder.decode(createResponse(allocator))) {
+
+            Assertions.assertThat(rows.hasNext()).isTrue();
+            RowData first = rows.next();
+            Assertions.assertThat(first.getLong(0)).isEqualTo(1L);
+            Assertions.assertThat(first.getString(1).toString()).isEqualTo("first");
+
+            Assertions.assertThat(rows.hasNext()).isTrue();
+            RowData second = rows.next();
+            Assertions.assertThat(second.getLong(0)).isEqualTo(2L);
+            Assertions.assertThat(second.isNullAt(1)).isTrue();
+
+            Assertions.assertThat(rows.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testDecodeCompressedRecordBatches() throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowReadRowsResponseDecoder decoder =
+                        new ArrowReadRowsResponseDecoder(ROW_TYPE, allocator)) {
+            // the body buffer of the first batch gets reused by the following ones
+            for (CompressionCodec codec :
+                    Lists.newArrayList(
+                            new Lz4CompressionCodec(),
+                            new ZstdCompressionCodec(),
+                            new Lz4CompressionCodec())) {
+                try (CloseableIterator<RowData> rows =
+                        decoder.decode(createResponse(allocator, codec))) {
+                    RowData first = rows.next();
+                    Assertions.assertThat(first.getLong(0)).isEqualTo(1L);
+                    Assertions.assertThat(first.getString(1).toString()).isEqualTo("first");
+
+                    RowData second = rows.next();
+                    Assertions.assertThat(second.getLong(0)).isEqualTo(2L);
+                    Assertions.assertThat(second.isNullAt(1)).isTrue();
+
+                    Assertions.assertThat(rows.hasNext()).isFalse();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyResponse() throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowReadRowsResponseDecoder decoder =
+                        new ArrowReadRowsResponseDecoder(ROW_TYPE, allocator);
+                CloseableIterator<RowData> rows =
+                        decoder.decode(ReadRowsResponse.getDefaultInstance())) {
+            Assertions.assertThat(rows.hasNext()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryStringData;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** */
+public class AvroBinaryRowReaderTest {
+
+    private static final RowType ROW_TYPE =
+            SchemaTransform.toFlinkRowType(
+                    Lists.newArrayList(
+                            new TableFieldSchema().setName("id").setType("INTEGER"),
+                            new TableFieldSchema().setName("score").setType("FLOAT"),
+                            new TableFieldSchema().setName("active").setType("BOOLEAN"),
+                            new TableFieldSchema().setName("name").setType("STRING"),
+                            new TableFieldSchema().setName("payload").setType("BYTES"),
+                            new TableFieldSchema().setName("amount").setType("NUMERIC"),
+                            new TableFieldSchema().setName("day").setType("DATE"),
+                            new TableFieldSchema().setName("time").setType("TIME"),
+                            new TableFieldSchema().setName("ts").setType("TIMESTAMP"),
+                            new TableFieldSchema().setName("dt").setType("DATETIME"),
+                            new TableFieldSchema()
+                                    .setName("tags")
+                                    .setType("INTEGER")
+                                    .setMode("REPEATED"),
+                            new TableFieldSchema()
+                                    .setName("nested")
+                                    .setType("RECORD")
+                                    .setFields(
+                                            Lists.newArrayList(
+                                                    new TableFieldSchema()
+                                                            .setName("key")
+                                                            .setType("STRING")
+                                                            .setMode("REQUIRED")))));
+
+    private static final Schema AVRO_SCHEMA =
+            new Schema.Parser()
+                    .parse(
+                            "{\"type\": \"record\", \"name\": \"__root__\", \"fields\": ["
+                                    + "{\"name\": \"id\", \"type\": [\"null\", \"long\"]},"
+                                    + "{\"name\": \"score\", \"type\": [\"null\", \"double\"]},"
+                                    + "{\"name\": \"active\", \"type\": [\"null\", \"boolean\"]},"
+                                    + "{\"name\": \"name\", \"type\": [\"null\", \"string\"]},"
+                                    + "{\"name\": \"payload\", \"type\": [\"null\", \"bytes\"]},"
+                                    + "{\"name\": \"amount\", \"type\": [\"null\", {\"type\":"
+                                    + " \"bytes\", \"logicalType\": \"decimal\","
+                                    + " \"precision\": 38, \"scale\": 9}]},"
+                                    + "{\"name\": \"day\", \"type\": [\"null\", {\"type\":"
+                                    + " \"int\", \"logicalType\": \"date\"}]},"
+                                    + "{\"name\": \"time\", \"type\": [\"null\", {\"type\":"
+                                    + " \"long\", \"logicalType\": \"time-micros\"}]},"
+                                    + "{\"name\": \"ts\", \"type\": [\"null\", {\"type\":"
+                                    + " \"long\", \"logicalType\": \"timestamp-micros\"}]},"
+                                    + "{\"name\": \"dt\", \"type\": [\"null\", {\"type\":"
+                                    + " \"string\", \"sqlType\": \"DATETIME\"}]},"
+                                    + "{\"name\": \"tags\", \"type\": {\"type\": \"array\","
+                                    + " \"items\": \"long\"}},"
+                                    + "{\"name\": \"nested\", \"type\": [\"null\", {\"type\":"
+                                    + " \"record\", \"name\": \"nested\", \"fields\": ["
+                                    + "{\"name\": \"key\", \"type\": \"string\"}]}]}]}");
+
+    private static final GenericData GENERIC_DATA = new GenericData();
+
+    static {
+        GENERIC_DATA.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    }
+
+    static GenericRecord createRecord(long id) {
+        GenericRecord record = new GenericData.Record(AVRO_SCHEMA);
+        record.put("id", id);
+        record.put("score", id * 1.5);
+        record.put("active", id % 2 == 0);
+        record.put("name", "name-" + id);
+        record.put("payload", ByteBuffer.wrap(new byte[] {(byte) id, 1, 2}));
+        record.put("amount", new BigDecimal("-12345.000000001").add(BigDecimal.valueOf(id)));
+        record.put("day", 19000 + (int) id);
+        record.put("time", 45296_123456L + id);
+        record.put("ts", -1_000_001L + id * 86_400_000_000L);
+        record.put("dt", "2023-05-1" + id + "T10:15:30.123456");
+        record.put("tags", Arrays.asList(id, id + 1, id + 2));
+        GenericRecord nested =
+                new GenericData.Record(AVRO_SCHEMA.getField("nested").schema().getTypes().get(1));
+        nested.put("key", "key-" + id);
+        record.put("nested", nested);
+        return record;
+    }
+
+    static GenericRecord createNullsRecord() {
+        GenericRecord record = new GenericData.Record(AVRO_SCHEMA);
+        record.put("tags", new ArrayList<Long>());
+        return record;
+    }
+
+    static byte[] serialize(List<GenericRecord> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        GenericDatumWriter<GenericRecord> writer =
+                new GenericDatumWriter<>(AVRO_SCHEMA, GENERIC_DATA);
+        for (GenericRecord record : records) {
+            writer.write(record, encoder);
+        }
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testReadRowsAsTheGenericConverter() throws IOException {
+        byte[] serialized =
+                serialize(
+                        Lists.newArrayList(createRecord(1), createNullsRecord(), createRecord(2)));
+
+        // the rows decoded through generic records are the reference
+        GenericDatumReader<GenericRecord> datumReader =
+                new GenericDatumReader<>(AVRO_SCHEMA, AVRO_SCHEMA, GENERIC_DATA);
+        AvroToRowDataConverters.AvroToRowDataConverter converter =
+                AvroToRowDataConverters.createRowConverter(ROW_TYPE);
+        BinaryDecoder genericDecoder = DecoderFactory.get().binaryDecoder(serialized, null);
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(converter.convert(datumReader.read(null, genericDecoder)));
+        }
+
+        AvroBinaryRowReader reader = AvroBinaryRowReader.create(AVRO_SCHEMA, ROW_TYPE);
+        AvroBlockInput input = new AvroBlockInput(serialized);
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(reader.read(input));
+        }
+
+        Assertions.assertThat(input.isEnd()).isTrue();
+        Assertions.assertThat(rows).isEqualTo(expected);
+
+        RowData nulls = (RowData) rows.get(1);
+        Assertions.assertThat(nulls.isNullAt(0)).isTrue();
+        Assertions.assertThat(nulls.isNullAt(11)).isTrue();
+        Assertions.assertThat(nulls.getArray(10).size()).isEqualTo(0);
+
+        // the strings point at the block, instead of holding a copy of their bytes
+        BinaryStringData name = (BinaryStringData) ((RowData) rows.get(0)).getString(3);
+        Assertions.assertThat(name.getSegments()[0].getArray()).isSameAs(serialized);
+    }
+
+    @Test
+    public void testUnsupportedSchema() {
+        Schema avroSchema =
+                new Schema.Parser()
+                        .parse(
+                                "{\"type\": \"record\", \"name\": \"__root__\", \"fields\": ["
+                                        + "{\"name\": \"id\", \"type\": [\"long\", \"string\"]}]}");
+        RowType rowType =
+                SchemaTransform.toFlinkRowType(
+                        Lists.newArrayList(
+                                new TableFieldSchema().setName("id").setType("INTEGER")));
+
+        Assertions.assertThatThrownBy(() -> AvroBinaryRowReader.create(avroSchema, rowType))
+                .isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> AvroBinaryRowReader.create(AVRO_SCHEMA, rowType))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.binary.BinaryStringData;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/** */
+public class AvroBlockInputTest {
+
+    private static byte[] encode(long id, String name, String day) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        encoder.writeLong(id);
+        encoder.writeString(name);
+        encoder.writeString(day);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static void assertBlock(AvroBlockInput input, String name) throws IOException {
+        Assertions.assertThat(input.readLong()).isEqualTo(42L);
+        Assertions.assertThat(input.readString().toString()).isEqualTo(name);
+        int offset = input.readSpan();
+        Assertions.assertThat(
+                        ValueConversions.parseDate(input.block(), offset, input.spanLength()))
+                .isEqualTo((int) LocalDate.of(2023, 1, 1).toEpochDay());
+        Assertions.assertThat(input.isEnd()).isTrue();
+    }
+
+    @Test
+    public void testHeapPayloadIsReadInPlace() throws IOException {
+        byte[] block = encode(42L, "name-42", "2023-01-01");
+        // the payload is a slice of a larger array
+        byte[] payload = new byte[block.length + 4];
+        System.arraycopy(block, 0, payload, 2, block.length);
+
+        AvroBlockInput input =
+                AvroBlockInput.of(UnsafeByteOperations.unsafeWrap(payload, 2, block.length), false);
+        Assertions.assertThat(input.readLong()).isEqualTo(42L);
+        BinaryStringData name = (BinaryStringData) input.readString();
+        Assertions.assertThat(name.getSegments()[0].getArray()).isSameAs(payload);
+
+        assertBlock(
+                AvroBlockInput.of(UnsafeByteOperations.unsafeWrap(payload, 2, block.length), false),
+                "name-42");
+    }
+
+    @Test
+    public void testOffHeapPayloadIsReadInPlace() throws IOException {
+        byte[] block = encode(42L, "name-42", "2023-01-01");
+        ByteBuffer payload = ByteBuffer.allocateDirect(block.length);
+        payload.put(block).flip();
+
+        AvroBlockInput input = AvroBlockInput.of(UnsafeByteOperations.unsafeWrap(payload), false);
+        Assertions.assertThat(input.readLong()).isEqualTo(42L);
+        BinaryStringData name = (BinaryStringData) input.readString();
+        Assertions.assertThat(name.getSegments()[0].isOffHeap()).isTrue();
+
+        assertBlock(AvroBlockInput.of(UnsafeByteOperations.unsafeWrap(payload), false), "name-42");
+    }
+
+    @Test
+    public void testPayloadAcrossBuffersIsCopied() throws IOException {
+        // small payloads get flattened when concatenated
+        String name = new String(new char[300]).replace('\0', 'x');
+        byte[] block = encode(42L, name, "2023-01-01");
+        int half = block.length / 2;
+        ByteString payload =
+                ByteString.copyFrom(block, 0, half)
+                        .concat(ByteString.copyFrom(block, half, block.length - half));
+
+        assertBlock(AvroBlockInput.of(payload, false), name);
+    }
+
+    @Test
+    public void testStringsOfReleasablePayloadAreCopied() throws IOException {
+        byte[] block = encode(42L, "name-42", "2023-01-01");
+        ByteBuffer payload = ByteBuffer.allocateDirect(block.length);
+        payload.put(block).flip();
+
+        AvroBlockInput input = AvroBlockInput.of(UnsafeByteOperations.unsafeWrap(payload), true);
+        Assertions.assertThat(input.readLong()).isEqualTo(42L);
+        StringData name = input.readString();
+
+        // the transport buffer gets reused once the response has been released
+        payload.clear();
+        payload.put(new byte[block.length]);
+        Assertions.assertThat(name.toString()).isEqualTo("name-42");
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.CloseableIterator;
+
+import org.apache.flink.shaded.guava30.com.google.common.collect.Lists;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.AvroRows;
+import com.google.cloud.bigquery.storage.v1.AvroSchema;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.flink.bigquery.common.utils.SchemaTransform;
+import com.google.protobuf.ByteString;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** */
+public class AvroReadRowsResponseDecoderTest {
+
+    private static final RowType ROW_TYPE =
+            SchemaTransform.toFlinkRowType(
+                    Lists.newArrayList(
+                            new TableFieldSchema().setName("id").setType("INTEGER"),
+                            new TableFieldSchema().setName("name").setType("STRING")));
+
+    private static final String AVRO_SCHEMA_STRING =
+            "{\"type\": \"record\", \"name\": \"__root__\", \"fields\": ["
+                    + "{\"name\": \"id\", \"type\": [\"null\", \"long\"]},"
+                    + "{\"name\": \"name\", \"type\": [\"null\", \"string\"]}]}";
+
+    private static final Schema AVRO_SCHEMA = new Schema.Parser().parse(AVRO_SCHEMA_STRING);
+
+    static ReadRowsResponse createResponse(boolean withSchema, Long... ids) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(AVRO_SCHEMA);
+        for (Long id : ids) {
+            GenericRecord record = new GenericData.Record(AVRO_SCHEMA);
+            record.put("id", id);
+            record.put("name", id % 2 == 0 ? null : "name-" + id);
+            writer.write(record, encoder);
+        }
+        encoder.flush();
+
+        ReadRowsResponse.Builder response =
+                ReadRowsResponse.newBuilder()
+                        .setAvroRows(
+                                AvroRows.newBuilder()
+                                        .setSerializedBinaryRows(
+                                                ByteString.copyFrom(out.toByteArray())))
+                        .setRowCount(ids.length);
+        if (withSchema) {
+            response.setAvroSchema(AvroSchema.newBuilder().setSchema(AVRO_SCHEMA_STRING));
+        }
+        return response.build();
+    }
+
+    @Test
+    public void testDecodeRowsAcrossResponses() throws Exception {
+        try (AvroReadRowsResponseDecoder decoder = new AvroReadRowsResponseDecoder(ROW_TYPE)) {
+            try (CloseableIterator<RowData> rows = decoder.decode(createResponse(true, 1L, 2L))) {
+                RowData first = rows.next();
+                Assertions.assertThat(first.getLong(0)).isEqualTo(1L);
+                Assertions.assertThat(first.getString(1).toString()).isEqualTo("name-1");
+
+                RowData second = rows.next();
+                Assertions.assertThat(second.getLong(0)).isEqualTo(2L);
+                Assertions.assertThat(second.isNullAt(1)).isTrue();
+
+                Assertions.assertThat(rows.hasNext()).isFalse();
+            }
+            // the following responses of the stream do not carry the schema anymore
+            try (CloseableIterator<RowData> rows = decoder.decode(createResponse(false, 3L))) {
+                RowData third = rows.next();
+                Assertions.assertThat(third.getLong(0)).isEqualTo(3L);
+                Assertions.assertThat(third.getString(1).toString()).isEqualTo("name-3");
+
+                Assertions.assertThat(rows.hasNext()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeRowsEagerly() throws Exception {
+        try (AvroReadRowsResponseDecoder decoder = new AvroReadRowsResponseDecoder(ROW_TYPE)) {
+            ReadRowsResponse first = createResponse(true, 1L, 2L);
+            ReadRowsResponse second = createResponse(false, 3L);
+            decoder.readSchema(first);
+            decoder.readSchema(second);
+
+            // the responses may be decoded in any order, and their rows are not reused
+            try (CloseableIterator<RowData> secondRows = decoder.decodeEagerly(second);
+                    CloseableIterator<RowData> firstRows = decoder.decodeEagerly(first)) {
+                RowData row1 = firstRows.next();
+                RowData row2 = firstRows.next();
+                RowData row3 = secondRows.next();
+                Assertions.assertThat(firstRows.hasNext()).isFalse();
+                Assertions.assertThat(secondRows.hasNext()).isFalse();
+
+                Assertions.assertThat(row1.getLong(0)).isEqualTo(1L);
+                Assertions.assertThat(row1.getString(1).toString()).isEqualTo("name-1");
+                Assertions.assertThat(row2.getLong(0)).isEqualTo(2L);
+                Assertions.assertThat(row2.isNullAt(1)).isTrue();
+                Assertions.assertThat(row3.getLong(0)).isEqualTo(3L);
+                Assertions.assertThat(row3.getString(1).toString()).isEqualTo("name-3");
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeRowsReusingObjects() throws Exception {
+        try (AvroReadRowsResponseDecoder decoder =
+                        new AvroReadRowsResponseDecoder(ROW_TYPE, true);
+                CloseableIterator<RowData> rows = decoder.decode(createResponse(true, 1L, 2L))) {
+            RowData first = rows.next();
+            Assertions.assertThat(first.getLong(0)).isEqualTo(1L);
+            Assertions.assertThat(first.getString(1).toString()).isEqualTo("name-1");
+
+            RowData second = rows.next();
+            Assertions.assertThat(second).isSameAs(first);
+            Assertions.assertThat(second.getLong(0)).isEqualTo(2L);
+            Assertions.assertThat(second.isNullAt(1)).isTrue();
+        }
+    }
+
+    @Test
+    public void testEmptyResponse() throws Exception {
+        try (AvroReadRowsResponseDecoder decoder = new AvroReadRowsResponseDecoder(ROW_TYPE);
+                CloseableIterator<RowData> rows =
+                        decoder.decode(ReadRowsResponse.getDefaultInstance())) {
+            Assertions.assertThat(rows.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testRowsWithoutSchema() throws Exception {
+        try (AvroReadRowsResponseDecoder decoder = new AvroReadRowsResponseDecoder(ROW_TYPE)) {
+            Assertions.assertThatThrownBy(() -> decoder.decode(createResponse(false, 1L)))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
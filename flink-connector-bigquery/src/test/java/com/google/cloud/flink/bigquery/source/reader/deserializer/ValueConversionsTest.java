@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2023 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.flink.bigquery.source.reader.deserializer;
+
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.TimestampData;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/** */
+public class ValueConversionsTest {
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDecimalsFromUnscaledBytes() {
+        String[] values = {
+            "0", "1.5", "-1.5", "12345.000000001", "-0.000000005", "99999999.999999999",
+            "-92233720368.547758080", "123456789012345678901234567.123456789"
+        };
+        int[][] precisionsAndScales = {{38, 9}, {18, 9}, {10, 2}, {20, 0}, {38, 12}, {5, 4}};
+        for (String value : values) {
+            BigDecimal decimal = new BigDecimal(value).setScale(9);
+            byte[] unscaled = decimal.unscaledValue().toByteArray();
+            for (int[] precisionAndScale : precisionsAndScales) {
+                int precision = precisionAndScale[0];
+                int scale = precisionAndScale[1];
+                DecimalData expected = DecimalData.fromBigDecimal(decimal, precision, scale);
+
+                DecimalData converted =
+                        ValueConversions.decimalFromUnscaledBytes(
+                                unscaled, 0, unscaled.length, 9, precision, scale);
+
+                Assertions.assertThat(converted)
+                        .as("%s as DECIMAL(%s, %s)", value, precision, scale)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testTimestampsFromMicros() {
+        long[] values = {0L, 1L, -1L, 1_684_000_000_123_456L, -62_135_596_800_000_000L};
+        for (long micros : values) {
+            LocalDateTime expected =
+                    LocalDateTime.of(1970, 1, 1, 0, 0)
+                            .plusSeconds(Math.floorDiv(micros, 1_000_000L))
+                            .plusNanos(Math.floorMod(micros, 1_000_000L) * 1000L);
+
+            Assertions.assertThat(ValueConversions.timestampFromMicros(micros).toLocalDateTime())
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testParseDates() {
+        String[] values = {"1970-01-01", "0001-01-01", "9999-12-31", "2024-02-29", "1969-12-31"};
+        for (String value : values) {
+            byte[] bytes = utf8(value);
+            Assertions.assertThat(ValueConversions.parseDate(bytes, 0, bytes.length))
+                    .isEqualTo((int) LocalDate.parse(value).toEpochDay());
+        }
+        byte[] invalid = utf8("2023-02-29");
+        Assertions.assertThatThrownBy(() -> ValueConversions.parseDate(invalid, 0, invalid.length))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void testParseTimes() {
+        String[] values = {"00:00:00", "23:59:59.999999", "12:34:56.7", "01:02:03.000123"};
+        for (String value : values) {
+            byte[] bytes = utf8(value);
+            Assertions.assertThat(ValueConversions.parseTime(bytes, 0, bytes.length))
+                    .isEqualTo((int) (LocalTime.parse(value).toNanoOfDay() / 1_000_000L));
+        }
+    }
+
+    @Test
+    public void testParseDateTimes() {
+        String[] values = {
+            "2023-05-12T10:15:30", "1969-12-31T23:59:59.999999", "0001-01-01T00:00:00.1",
+            "2024-02-29T12:00:00.123456"
+        };
+        for (String value : values) {
+            byte[] bytes = utf8(value);
+            Assertions.assertThat(ValueConversions.parseDateTime(bytes, 0, bytes.length))
+                    .isEqualTo(TimestampData.fromLocalDateTime(LocalDateTime.parse(value)));
+        }
+        // the canonical BigQuery format uses a space as separator
+        byte[] spaced = utf8("2023-05-12 10:15:30.5");
+        Assertions.assertThat(ValueConversions.parseDateTime(spaced, 0, spaced.length))
+                .isEqualTo(
+                        TimestampData.fromLocalDateTime(
+                                LocalDateTime.parse("2023-05-12T10:15:30.5")));
+    }
+}
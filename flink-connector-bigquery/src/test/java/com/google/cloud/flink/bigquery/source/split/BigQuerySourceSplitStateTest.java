@@ -60,7 +60,8 @@ public class BigQuerySourceSplitStateTest {
         BigQuerySourceSplit originalSplit = new BigQuerySourceSplit(streamName, 10L);
         BigQuerySourceSplitState splitState = new BigQuerySourceSplitState(originalSplit);
 
-        splitState.updateOffset();
+        // first row emitted from the response starting at the split's offset
+        splitState.updateOffset(10L, 1L);
         BigQuerySourceSplit otherSplit = new BigQuerySourceSplit(streamName, 11L);
 
         Assertions.assertThat(splitState.toBigQuerySourceSplit()).isEqualTo(otherSplit);
@@ -71,4 +72,21 @@ public class BigQuerySourceSplitStateTest {
         Assertions.assertThat(splitState.hashCode())
                 .isNotEqualTo(new BigQuerySourceSplitState(otherSplit).hashCode());
     }
+
+    @Test
+    public void testSplitStateResponseOffsets() {
+
+        String streamName = "somestream";
+        BigQuerySourceSplitState splitState =
+                new BigQuerySourceSplitState(new BigQuerySourceSplit(streamName, 10L));
+
+        // third row emitted from a response starting at offset 20
+        splitState.updateOffset(20L, 3L);
+        Assertions.assertThat(splitState.getOffset()).isEqualTo(23L);
+        Assertions.assertThat(splitState.toBigQuerySourceSplit())
+                .isEqualTo(new BigQuerySourceSplit(streamName, 23L));
+
+        splitState.updateOffset(20L, 4L);
+        Assertions.assertThat(splitState.getOffset()).isEqualTo(24L);
+    }
 }